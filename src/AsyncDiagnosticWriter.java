@@ -0,0 +1,113 @@
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * AsyncDiagnosticWriter.java
+ * DiagnosticSink that writes diagnostics to a Writer on a background
+ * thread, one per line.
+ *
+ * The scanner only enqueues: formatting the message and the I/O happen on
+ * the writer thread. The queue is bounded, so a scan that produces errors
+ * faster than they can be written waits for the writer rather than
+ * buffering without limit. The output is flushed whenever the queue runs
+ * empty, so errors appear while the scan is still going.
+ *
+ * close() writes what is still queued, then closes the Writer. A write
+ * error, or an exception from formatting a diagnostic, stops the output
+ * but not the draining, so the scan is never held up; close() rethrows it.
+ */
+public final class AsyncDiagnosticWriter implements DiagnosticSink, Closeable {
+
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Writer                out;
+    private final Thread                thread;
+    private volatile Throwable          failure;
+    private boolean                     closed;
+
+    /**
+     * @param out       destination, owned by this writer from now on
+     * @param capacity  diagnostics that may wait to be written (&gt; 0)
+     */
+    public AsyncDiagnosticWriter(Writer out, int capacity) {
+        this.queue  = new ArrayBlockingQueue<>(capacity);
+        this.out    = out;
+        this.thread = new Thread(this::drain, "diagnostic-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues `d`, waiting while the queue is full.
+     *
+     * @throws IllegalStateException  if the writer is closed or has stopped,
+     *                                or the caller is interrupted
+     */
+    @Override
+    public void report(Diagnostic d) {
+        if (closed) throw new IllegalStateException("diagnostic writer is closed");
+        try {
+            if (!enqueue(d)) throw new IllegalStateException("diagnostic writer has stopped", failure);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while queueing a diagnostic", ex);
+        }
+    }
+
+    /**
+     * Puts `item` on the queue, waiting while it is full. Returns false,
+     * without queueing, once the writer thread has died: nothing would
+     * make room any more.
+     */
+    private boolean enqueue(Object item) throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            if (!thread.isAlive()) return false;
+        }
+        return true;
+    }
+
+    private void drain() {
+        try {
+            for (Object d; (d = queue.take()) != END; ) {
+                if (failure != null) continue;           // keep taking so report() never blocks for good
+                try {
+                    out.write(d.toString());
+                    out.write(System.lineSeparator());
+                    if (queue.isEmpty()) out.flush();
+                } catch (IOException | RuntimeException ex) {
+                    failure = ex;                        // e.g. a Diagnostic whose toString() throws
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Error err) {
+            failure = err;
+            throw err;
+        }
+    }
+
+    /**
+     * Writes the queued diagnostics and closes the Writer.
+     *
+     * @throws IOException  the first write error, if any; a RuntimeException
+     *                      or Error that stopped the output is rethrown as is
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            enqueue(END);
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing the diagnostic writer");
+        }
+        out.close();
+        Throwable f = failure;
+        if (f instanceof IOException)      throw (IOException) f;
+        if (f instanceof RuntimeException) throw (RuntimeException) f;
+        if (f instanceof Error)            throw (Error) f;
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * BatchScanner.java
+ * Lexes many ZenLang files in one JVM, concurrently.
+ *
+ * Inputs may be files, directories (searched recursively for .lang and
+ * .zl files), glob patterns such as src/**.lang, or @list files naming one
+ * input per line. Every file is scanned by its own ManualScanner on a
+ * fixed pool of worker threads; results are printed in input order, as
+ * soon as all earlier files are done, so the output does not depend on
+ * which worker finishes first.
+ *
+ * Each worker also merges its file's identifiers into one project-wide
+ * ConcurrentSymbolTable.
+ *
+ * With an error limit (--max-errors), a file stops being scanned at its
+ * N-th error, so a binary file picked up by mistake is rejected after a
+ * few bytes instead of being lexed to the end.
+ *
+ * Exit status is 1 if any file could not be read or had lexical errors.
+ */
+public class BatchScanner {
+
+    /** Extensions picked up when a directory is given. */
+    private static final String[] EXTENSIONS = { ".lang", ".zl" };
+
+    // ── Per-file result ───────────────────────────────────────────────────────
+
+    /** Outcome of scanning one file. */
+    public static class Result {
+        final String       path;
+        final String       failure;     // read error, or null if the file was scanned
+        final int          tokens;
+        final int          lines;
+        final int          comments;
+        final int          identifiers;
+        final List<String> errors;
+        final boolean      aborted;     // scanning stopped at the error limit
+
+        Result(String path, ManualScanner lexer) {
+            this.path        = path;
+            this.failure     = null;
+            this.tokens      = lexer.getTokenCount();
+            this.lines       = lexer.getLineCount();
+            this.comments    = lexer.getCommentCount();
+            this.identifiers = lexer.getIdTable().uniqueCount();
+            this.errors      = lexer.getErrorLog().allMessages();
+            this.aborted     = lexer.getErrorLog().shouldAbort();
+        }
+
+        Result(String path, String failure) {
+            this.path        = path;
+            this.failure     = failure;
+            this.tokens      = 0;
+            this.lines       = 0;
+            this.comments    = 0;
+            this.identifiers = 0;
+            this.errors      = Collections.emptyList();
+            this.aborted     = false;
+        }
+
+        public boolean failed()    { return failure != null; }
+        public boolean hasErrors() { return !errors.isEmpty(); }
+
+        @Override
+        public String toString() {
+            if (failed()) return String.format("%-40s  UNREADABLE: %s", path, failure);
+            return String.format("%-40s  tokens: %-7d lines: %-6d comments: %-5d ids: %-5d errors: %d%s",
+                                 path, tokens, lines, comments, identifiers, errors.size(),
+                                 aborted ? "  (aborted)" : "");
+        }
+    }
+
+    // ── Scanning ──────────────────────────────────────────────────────────────
+
+    private final ManualScanner.Engine  engine;
+    private final int                   threads;
+    private final ConcurrentSymbolTable projectIds = new ConcurrentSymbolTable();
+    private       int                   maxErrors;          // 0: no limit
+    private       boolean               collapseRuns;
+
+    /**
+     * @param engine   token recognition strategy used for every file
+     * @param threads  number of worker threads (&gt; 0)
+     */
+    public BatchScanner(ManualScanner.Engine engine, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("thread count must be positive: " + threads);
+        this.engine  = engine;
+        this.threads = threads;
+    }
+
+    /**
+     * Stops scanning a file at its `maxErrors`-th error (0 for no limit)
+     * and optionally collapses runs of one invalid character; see
+     * ErrorHandler.
+     */
+    public void setErrorLimit(int maxErrors, boolean collapseRuns) {
+        if (maxErrors < 0) throw new IllegalArgumentException("error limit must not be negative: " + maxErrors);
+        this.maxErrors    = maxErrors;
+        this.collapseRuns = collapseRuns;
+    }
+
+    /**
+     * Scans `files` concurrently and hands each result to `sink` in the
+     * order of `files`. Blocks until every file has been reported.
+     */
+    public void scan(List<String> files, Consumer<Result> sink)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> pending = new ArrayList<>();
+            for (String file : files) {
+                pending.add(pool.submit(() -> scanFile(file)));
+            }
+            for (Future<Result> f : pending) {
+                try {
+                    sink.accept(f.get());
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("scanner failed", ex.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Result scanFile(String file) {
+        try {
+            ManualScanner lexer = new ManualScanner(ManualScanner.readFile(file), engine);
+            ManualScanner.limitErrors(lexer.getErrorLog(), collapseRuns, maxErrors);
+            lexer.tokenise();
+            projectIds.addAll(lexer.getIdTable());
+            return new Result(file, lexer);
+        } catch (IOException | UncheckedIOException ex) {
+            return new Result(file, ex.getMessage());
+        }
+    }
+
+    /** Identifiers of every file scanned so far, with their total counts. */
+    public ConcurrentSymbolTable getProjectIds() {
+        return projectIds;
+    }
+
+    // ── Input expansion ───────────────────────────────────────────────────────
+
+    /**
+     * Expands command-line inputs into a list of files: directories are
+     * walked, globs matched and @lists read, each in sorted order. A file
+     * reached more than once is kept at its first position.
+     *
+     * @throws IOException  if a directory or @list cannot be read
+     */
+    public static List<String> expand(List<String> inputs) throws IOException {
+        Set<String> out = new LinkedHashSet<>();
+        for (String input : inputs) expand(input, out);
+        return new ArrayList<>(out);
+    }
+
+    private static void expand(String input, Set<String> out) throws IOException {
+        if (input.startsWith("@")) {
+            for (String line : Files.readAllLines(Paths.get(input.substring(1)))) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) expand(line, out);
+            }
+        } else if (isGlob(input)) {
+            out.addAll(glob(input));
+        } else if (Files.isDirectory(Paths.get(input))) {
+            out.addAll(walk(Paths.get(input), p -> hasExtension(p.toString())));
+        } else {
+            out.add(input);     // missing files are reported as unreadable
+        }
+    }
+
+    private static boolean isGlob(String s) {
+        return firstWildcard(s) < s.length();
+    }
+
+    /** Index of the first glob metacharacter in `s`, or s.length(). */
+    private static int firstWildcard(String s) {
+        int i = 0;
+        while (i < s.length() && "*?[{".indexOf(s.charAt(i)) < 0) i++;
+        return i;
+    }
+
+    /** Walks the fixed directory prefix of `pattern` and keeps the matches. */
+    private static List<String> glob(String pattern) throws IOException {
+        int slash = pattern.lastIndexOf('/', firstWildcard(pattern));
+        Path base = Paths.get(slash < 0 ? "" : (slash == 0 ? "/" : pattern.substring(0, slash)));
+        if (!Files.isDirectory(base)) return Collections.emptyList();
+
+        PathMatcher m = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        return walk(base, m::matches);
+    }
+
+    private static List<String> walk(Path dir, Predicate<Path> keep)
+            throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(keep)
+                        .map(Path::toString)
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean hasExtension(String name) {
+        for (String ext : EXTENSIONS) {
+            if (name.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    // ── Main ──────────────────────────────────────────────────────────────────
+
+    public static void main(String[] args) throws Exception {
+        ManualScanner.Engine engine = ManualScanner.Engine.DIRECT;
+        int          threads = Runtime.getRuntime().availableProcessors();
+        boolean      quiet   = false;
+        boolean      runs    = false;
+        int          budget  = 0;
+        List<String> inputs  = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--table"))                             engine  = ManualScanner.Engine.TABLE;
+            else if (arg.equals("--direct"))                       engine  = ManualScanner.Engine.DIRECT;
+            else if (arg.equals("--quiet"))                        quiet   = true;
+            else if (arg.equals("--collapse"))                     runs    = true;
+            else if (arg.equals("--max-errors") && i + 1 < args.length) budget = Integer.parseInt(args[++i]);
+            else if (arg.equals("--threads") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else                                                   inputs.add(arg);
+        }
+
+        if (inputs.isEmpty()) {
+            System.out.println("Usage: java BatchScanner [--direct | --table] [--threads N] [--quiet]"
+                             + " [--collapse] [--max-errors N]"
+                             + " <file | directory | glob | @filelist> ...");
+            return;
+        }
+
+        List<String> files;
+        try {
+            files = expand(inputs);
+        } catch (IOException ex) {
+            System.err.println("Cannot read input list: " + ex.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        final int W = 82;
+        System.out.println("ZenLang Batch Lexer  —  " + files.size() + " file(s), "
+                           + threads + " thread(s)");
+        System.out.println("=".repeat(W));
+
+        final boolean showErrors = !quiet;
+        final int[] totals = new int[6];    // tokens, lines, comments, errors, files with errors, unreadable
+        long t0 = System.nanoTime();
+
+        BatchScanner batch = new BatchScanner(engine, threads);
+        batch.setErrorLimit(budget, runs);
+        batch.scan(files, r -> {
+            System.out.println(r);
+            if (showErrors) {
+                for (String e : r.errors) System.out.println("    " + e);
+            }
+            totals[0] += r.tokens;
+            totals[1] += r.lines;
+            totals[2] += r.comments;
+            totals[3] += r.errors.size();
+            if (r.hasErrors()) totals[4]++;
+            if (r.failed())    totals[5]++;
+        });
+
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        System.out.println("\n" + "=".repeat(W));
+        System.out.println("BATCH SUMMARY");
+        System.out.println("=".repeat(W));
+        System.out.println("  Files scanned        : " + (files.size() - totals[5]));
+        System.out.println("  Files unreadable     : " + totals[5]);
+        System.out.println("  Files with errors    : " + totals[4]);
+        System.out.println("  Total tokens emitted : " + totals[0]);
+        System.out.println("  Lines processed      : " + totals[1]);
+        System.out.println("  Comments removed     : " + totals[2]);
+        System.out.println("  Unique identifiers   : " + batch.getProjectIds().uniqueCount());
+        System.out.println("  Lexical errors       : " + totals[3]);
+        System.out.println("  Elapsed              : " + ms + " ms");
+        System.out.println("=".repeat(W) + "\n");
+
+        if (totals[3] > 0 || totals[5] > 0) System.exit(1);
+    }
+}
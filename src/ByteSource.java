@@ -0,0 +1,122 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ByteSource.java
+ * Exposes UTF-8 encoded bytes (typically a MappedByteBuffer) to the
+ * scanner as a CharSequence without decoding them up front.
+ *
+ * ZenLang's alphabet is ASCII, so every byte is presented as one char and
+ * offsets are byte offsets. Multi-byte UTF-8 sequences can only appear
+ * legitimately inside text and char literals, where ManualScanner
+ * validates them; toString() decodes the bytes when a token's text is
+ * materialised.
+ */
+final class ByteSource implements CharSequence {
+
+    private final ByteBuffer bytes;     // absolute access only; position is ignored
+    private final int        start;
+    private final int        length;
+
+    ByteSource(ByteBuffer bytes) {
+        // Little-endian so that the lowest set bit of a word is its first byte
+        this(bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN), 0, bytes.limit());
+    }
+
+    private ByteSource(ByteBuffer bytes, int start, int length) {
+        this.bytes  = bytes;
+        this.start  = start;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /** Returns byte `i` widened to a char (0-255). */
+    @Override
+    public char charAt(int i) {
+        return (char) (bytes.get(start + i) & 0xFF);
+    }
+
+    /** Returns a view of bytes [from, to); no bytes are copied. */
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("slice " + from + ".." + to + " of " + length);
+        }
+        return new ByteSource(bytes, start + from, to - from);
+    }
+
+    // ── Word-at-a-time scanning ──────────────────────────────────────────────
+    //
+    // SWAR ("SIMD within a register"): eight bytes are loaded as one long
+    // and tested together. For x = word ^ broadcast(c), the expression
+    // (x - 0x01..01) & ~x & 0x80..80 is non-zero iff some byte equals c; its
+    // lowest set bit is exact, so it gives the first match.
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Returns the first index in [from, to) holding byte a, b or c, or any
+     * non-ASCII byte; `to` if there is none.
+     */
+    int skipUntil(int from, int to, char a, char b, char c) {
+        long pa = ONES * a, pb = ONES * b, pc = ONES * c;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long w = bytes.getLong(start + i);
+            long m = (w & HIGH) | zeroBytes(w ^ pa) | zeroBytes(w ^ pb) | zeroBytes(w ^ pc);
+            if (m != 0) return i + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        for (; i < to; i++) {
+            int v = bytes.get(start + i) & 0xFF;
+            if (v >= 0x80 || v == a || v == b || v == c) return i;
+        }
+        return to;
+    }
+
+    /** Returns the first index in [from, to) holding byte a; `to` if there is none. */
+    int indexOf(char a, int from, int to) {
+        long pa = ONES * a;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long m = zeroBytes(bytes.getLong(start + i) ^ pa);
+            if (m != 0) return i + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        for (; i < to; i++) {
+            if ((bytes.get(start + i) & 0xFF) == a) return i;
+        }
+        return to;
+    }
+
+    /** Returns the first index in [from, to) that is not a ' ' byte; `to` if none. */
+    int skipSpaces(int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long x = bytes.getLong(start + i) ^ (ONES * ' ');
+            long m = (((x & LOW7) + LOW7) | x) & HIGH;         // high bit of every non-zero byte
+            if (m != 0) return i + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        while (i < to && bytes.get(start + i) == ' ') i++;
+        return i;
+    }
+
+    private static long zeroBytes(long x) {
+        return (x - ONES) & ~x & HIGH;
+    }
+
+    /** Decodes the bytes as UTF-8. */
+    @Override
+    public String toString() {
+        byte[] raw = new byte[length];
+        ByteBuffer view = bytes.duplicate();
+        view.position(start);
+        view.get(raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * ConcurrentSymbolTable.java
+ * Thread-safe identifier table that many scanners can feed at once, e.g.
+ * one project-wide table filled by the workers of a BatchScanner.
+ *
+ * Names are kept in a ConcurrentHashMap: lookups never lock, and a new
+ * name only locks its own bin while it is inserted. Occurrence counts are
+ * LongAdders, so threads bumping a popular name do not contend on one
+ * counter. The first occurrence is the earliest (line, col) ever
+ * reported for a name, whatever the order in which threads report it.
+ *
+ * A scanner's own SymbolTable is still the fast path for recording
+ * single occurrences; addAll() merges a finished one in a single pass.
+ */
+public class ConcurrentSymbolTable {
+
+    // ── Inner record ─────────────────────────────────────────────────────────
+
+    /**
+     * Holds metadata for a single identifier.
+     */
+    private static class Entry {
+        final String     name;
+        volatile String  declaredType = "unknown";   // set during semantic analysis
+        final AtomicLong first;                      // (line << 32) | col, lowest wins
+        final LongAdder  occurrences  = new LongAdder();
+
+        Entry(String name, long first) {
+            this.name  = name;
+            this.first = new AtomicLong(first);
+        }
+
+        /** Lowers the first occurrence to `pos` if it is earlier. */
+        void keepEarliest(long pos) {
+            long cur;
+            while (pos < (cur = first.get()) && !first.compareAndSet(cur, pos)) {
+                // another thread moved it; compare again
+            }
+        }
+
+        int firstLine() { return (int) (first.get() >>> 32); }
+        int firstCol()  { return (int) first.get();          }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s | %-12s | Line: %-4d Col: %-4d | Count: %d",
+                                 name, declaredType, firstLine(), firstCol(), occurrences.sum());
+        }
+    }
+
+    // ── State ─────────────────────────────────────────────────────────────────
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // ── Public API ────────────────────────────────────────────────────────────
+
+    /** Records one occurrence of an identifier. */
+    public void record(String name, int line, int col) {
+        record(name, line, col, 1);
+    }
+
+    /** Records an identifier token. */
+    public void record(Token tok) {
+        record(tok.getText(), tok.getLine(), tok.getCol(), 1);
+    }
+
+    /**
+     * Merges a scanner's table: every name's count is added and its first
+     * occurrence kept if it is the earliest seen so far.
+     */
+    public void addAll(SymbolTable table) {
+        for (int id = 0; id < table.uniqueCount(); id++) {
+            record(table.nameOf(id), table.firstLineOf(id), table.firstColOf(id), table.countOf(id));
+        }
+    }
+
+    private void record(String name, int line, int col, int count) {
+        long  pos = ((long) line << 32) | (col & 0xFFFFFFFFL);
+        Entry e   = entries.get(name);
+        if (e == null) {
+            Entry fresh = new Entry(name, pos);
+            e = entries.putIfAbsent(name, fresh);
+            if (e == null) {
+                fresh.occurrences.add(count);
+                return;
+            }
+        }
+        e.occurrences.add(count);
+        e.keepEarliest(pos);
+    }
+
+    /** Returns true if the name has been seen at least once. */
+    public boolean has(String name) {
+        return entries.containsKey(name);
+    }
+
+    /** Returns how many times the name has appeared (0 if unknown). */
+    public long countOf(String name) {
+        Entry e = entries.get(name);
+        return (e != null) ? e.occurrences.sum() : 0;
+    }
+
+    /** Returns the number of distinct identifiers recorded. */
+    public int uniqueCount() {
+        return entries.size();
+    }
+
+    /**
+     * Prints the table to standard output in the layout of
+     * SymbolTable.display(), ordered by first occurrence. Call it once the
+     * writers are done; concurrent updates may or may not be shown.
+     */
+    public void display() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong((Entry e) -> e.first.get()).thenComparing(e -> e.name));
+
+        final int W = 88;
+        System.out.println("\n" + "=".repeat(W));
+        System.out.println("IDENTIFIER TABLE");
+        System.out.println("=".repeat(W));
+
+        if (list.isEmpty()) {
+            System.out.println("  (no identifiers found)");
+        } else {
+            System.out.printf("%-22s | %-12s | %-18s | %s%n",
+                              "Name", "Type", "First Occurrence", "Count");
+            System.out.println("-".repeat(W));
+            for (Entry e : list) {
+                System.out.println("  " + e);
+            }
+            System.out.println("-".repeat(W));
+            System.out.println("  Unique identifiers: " + list.size());
+        }
+        System.out.println("=".repeat(W) + "\n");
+    }
+}
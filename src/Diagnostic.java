@@ -0,0 +1,28 @@
+/**
+ * Diagnostic.java
+ * Read-only view of one lexical error, as handed to a DiagnosticSink.
+ *
+ * The lexeme and message are formatted on demand, so a sink that only
+ * counts or filters diagnostics never builds a String. A diagnostic does
+ * not change once it has been delivered.
+ */
+public interface Diagnostic {
+
+    /** Code of the error, or null for a free-form error (ErrorHandler.push). */
+    ErrorCode code();
+
+    /** Error category from the language specification (e.g. BAD_NUMBER). */
+    String category();
+
+    int line();
+
+    int col();
+
+    /** Columns covered (more than 1 for a collapsed run of one character). */
+    int width();
+
+    /** The offending lexeme. */
+    String lexeme();
+
+    String message();
+}
@@ -0,0 +1,23 @@
+import java.io.PrintStream;
+
+/**
+ * DiagnosticSink.java
+ * Receives lexical errors while a scan is running, in source order.
+ *
+ * Set on an ErrorHandler (see ErrorHandler.setSink), a sink lets a tool
+ * show errors before a long scan ends, and, with records not kept, keeps
+ * the error log in constant memory. A sink may be a callback, a printer,
+ * or an AsyncDiagnosticWriter that moves the formatting and I/O to a
+ * thread of its own.
+ */
+@FunctionalInterface
+public interface DiagnosticSink {
+
+    /** Called once per diagnostic, on the scanning thread. */
+    void report(Diagnostic d);
+
+    /** Sink that prints each diagnostic as a line of `out`. */
+    static DiagnosticSink printingTo(PrintStream out) {
+        return d -> out.println(d);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * EditedSource.java
+ * Immutable source text produced by ManualScanner.relex(): the previous
+ * text with one range replaced, held as a short table of pieces of the
+ * Strings it was built from instead of as one new copy.
+ *
+ * An edit therefore costs time in the number of pieces, not the length
+ * of the text. Each edit adds at most two pieces; once a text would have
+ * more than MAX_PIECES it is flattened into a plain String, so the copy
+ * is paid only once per few dozen edits and charAt() stays a short
+ * binary search. Earlier versions are never changed, so tokens and error
+ * records that still refer to them keep their lexemes.
+ */
+final class EditedSource implements CharSequence {
+
+    /** Largest number of pieces kept before a text is flattened. */
+    static final int MAX_PIECES = 64;
+
+    private final String[] texts;   // piece k is texts[k][from[k], from[k] + length of piece)
+    private final int[]    from;
+    private final int[]    starts;  // starts[k] = offset of piece k; starts[count] = length
+    private final int      count;
+    private int            last;    // piece of the previous charAt(), a hint only
+
+    private EditedSource(String[] texts, int[] from, int[] starts, int count) {
+        this.texts  = texts;
+        this.from   = from;
+        this.starts = starts;
+        this.count  = count;
+    }
+
+    /**
+     * Returns `text` with the `removed` characters at `offset` replaced by
+     * `inserted`. `text` must be a String or an EditedSource; the result is
+     * one of the two as well.
+     */
+    static CharSequence edit(CharSequence text, int offset, int removed, String inserted) {
+        EditedSource old = (text instanceof EditedSource) ? (EditedSource) text : of((String) text);
+        int end = offset + removed;
+        int max = old.count + 2;
+        String[] texts  = new String[max];
+        int[]    from   = new int[max];
+        int[]    starts = new int[max + 1];
+        int      n      = 0;
+        int      at     = 0;
+
+        // Pieces, or parts of pieces, before the edit
+        for (int k = 0; k < old.count && old.starts[k] < offset; k++) {
+            int len = Math.min(old.starts[k + 1], offset) - old.starts[k];
+            texts[n] = old.texts[k];  from[n] = old.from[k];  starts[n++] = at;
+            at += len;
+        }
+        if (!inserted.isEmpty()) {
+            texts[n] = inserted;  from[n] = 0;  starts[n++] = at;
+            at += inserted.length();
+        }
+        // ...and after it
+        for (int k = 0; k < old.count; k++) {
+            if (old.starts[k + 1] <= end) continue;
+            int skip = Math.max(end - old.starts[k], 0);
+            texts[n] = old.texts[k];  from[n] = old.from[k] + skip;  starts[n++] = at;
+            at += old.starts[k + 1] - old.starts[k] - skip;
+        }
+        starts[n] = at;
+
+        EditedSource edited = new EditedSource(texts, from, starts, n);
+        if (n > MAX_PIECES) return edited.toString();
+        if (n == 1 && from[0] == 0 && at == texts[0].length()) return texts[0];
+        return edited;
+    }
+
+    private static EditedSource of(String text) {
+        return new EditedSource(new String[] { text }, new int[] { 0 },
+                                new int[] { 0, text.length() }, text.isEmpty() ? 0 : 1);
+    }
+
+    // ── CharSequence ──────────────────────────────────────────────────────────
+
+    @Override
+    public int length() {
+        return starts[count];
+    }
+
+    @Override
+    public char charAt(int i) {
+        int k = last;
+        if (i < starts[k] || i >= starts[k + 1]) {
+            if (i < 0 || i >= starts[count]) {
+                throw new IndexOutOfBoundsException("index " + i + " of " + starts[count]);
+            }
+            last = k = piece(i);
+        }
+        return texts[k].charAt(from[k] + i - starts[k]);
+    }
+
+    /** Returns the characters in [start, end) as a String. */
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > starts[count] || start > end) {
+            throw new IndexOutOfBoundsException("range " + start + ".." + end + " of " + starts[count]);
+        }
+        if (start == end) return "";
+        int k = piece(start);
+        if (end <= starts[k + 1]) {
+            int off = from[k] - starts[k];
+            return texts[k].substring(off + start, off + end);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; k++) {
+            int stop = Math.min(starts[k + 1], end);
+            int off  = from[k] - starts[k];
+            sb.append(texts[k], off + i, off + stop);
+            i = stop;
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, starts[count]);
+    }
+
+    /** Index of the piece holding offset `i` (0 <= i < length()). */
+    private int piece(int i) {
+        int lo = 0, hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= i) lo = mid;
+            else                  hi = mid - 1;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * ErrorCode.java
+ * Defines every lexical diagnostic the ZenLang scanners can raise.
+ *
+ * Each code belongs to one of the error categories of the language
+ * specification and carries the template of its message. A message is
+ * only formatted when it is displayed: `%1$s` is the offending lexeme and
+ * `%2$d` the code's numeric detail (a length or a digit count).
+ */
+public enum ErrorCode {
+
+    // ── Characters ───────────────────────────────────────────────────────────
+    INVALID_CHAR          ("INVALID_CHAR",         "Character '%1$s' is not part of the ZenLang alphabet"),
+    BAD_ENCODING          ("BAD_ENCODING",         "Malformed UTF-8 sequence in literal"),
+
+    // ── Names ────────────────────────────────────────────────────────────────
+    IDENTIFIER_TOO_LONG   ("BAD_IDENTIFIER",       "Identifier length %2$d exceeds the 31-character limit"),
+
+    // ── Numbers ──────────────────────────────────────────────────────────────
+    SIGN_WITHOUT_DIGIT    ("BAD_NUMBER",           "Digit expected after sign"),
+    MISSING_DECIMAL_POINT ("BAD_NUMBER",           "Decimal point expected"),
+    MISSING_FRACTION      ("BAD_NUMBER",           "At least one digit required after the decimal point"),
+    FRACTION_TOO_LONG     ("BAD_NUMBER",           "Too many fractional digits (max 6, found %2$d)"),
+    MISSING_EXPONENT      ("BAD_NUMBER",           "Digit(s) required after exponent marker"),
+
+    // ── Literals and comments ────────────────────────────────────────────────
+    UNTERMINATED_STRING   ("UNTERMINATED_STRING",  "String literal opened with '\"' but never closed"),
+    UNTERMINATED_CHAR     ("UNTERMINATED_CHAR",    "Character literal opened with ''' but never closed"),
+    UNTERMINATED_COMMENT  ("UNTERMINATED_COMMENT", "Block comment opened with '#*' but '*#' was never found"),
+    BAD_ESCAPE            ("BAD_ESCAPE",           "Unrecognised escape sequence. Valid: \\n \\t \\r \\\" \\' \\\\");
+
+    private final String category;
+    private final String template;
+
+    ErrorCode(String category, String template) {
+        this.category = category;
+        this.template = template;
+    }
+
+    /** Error category from the language specification (e.g. BAD_NUMBER). */
+    public String category() { return category; }
+
+    /** Formats the message for the given lexeme and numeric detail. */
+    public String message(String lexeme, int arg) {
+        return String.format(template, lexeme, arg);
+    }
+}
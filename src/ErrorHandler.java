@@ -6,30 +6,98 @@ import java.util.*;
  *
  * Error recovery strategy: every error is logged and scanning continues
  * so that all errors in the file are reported in a single pass.
+ *
+ * Records are structured: an ErrorCode, an int position, the lexeme as a
+ * slice of the text it came from, and a numeric detail. Neither the
+ * lexeme nor the message is turned into a String until it is displayed,
+ * so logging an error costs one small object.
+ *
+ * On hostile input (a binary file fed to the lexer by mistake) the log can
+ * be bounded. setLimit() sets an error budget: later records are only
+ * counted. setCollapseRuns() merges a run of the same invalid character
+ * into one record covering its columns. With setAbortOnLimit(), scanners
+ * stop as soon as the budget is spent (see shouldAbort).
+ *
+ * Records can also be streamed to a DiagnosticSink as they are logged
+ * (see setSink), optionally without keeping them, so the log takes
+ * constant memory however many errors a scan finds.
  */
 public class ErrorHandler {
 
     // ── Error record ──────────────────────────────────────────────────────────
 
-    private static class ErrorRecord {
-        final String kind;
-        final int    line;
-        final int    col;
-        final String lexeme;
-        final String detail;
+    private static class ErrorRecord implements Diagnostic {
+        final ErrorCode    code;    // null for a free-form record (see push)
+        final String       kind;    // category of a free-form record
+        final int          line;
+        final int          col;
+        final CharSequence text;    // lexeme is text[start, end); null: derived from arg
+        final int          start;
+        final int          end;
+        final int          arg;     // numeric detail, or the character of the lexeme
+        final String       detail;  // message of a free-form record
+        int                offset = -1;   // start of the lexeme that raised it, if known
+        int                run    = 1;    // columns covered by a collapsed INVALID_CHAR run
 
-        ErrorRecord(String kind, int line, int col, String lexeme, String detail) {
+        ErrorRecord(ErrorCode code, String kind, int line, int col,
+                    CharSequence text, int start, int end, int arg, String detail) {
+            this.code   = code;
             this.kind   = kind;
             this.line   = line;
             this.col    = col;
-            this.lexeme = lexeme;
+            this.text   = text;
+            this.start  = start;
+            this.end    = end;
+            this.arg    = arg;
             this.detail = detail;
         }
 
+        /** Copy moved by an edit (see replace). */
+        ErrorRecord shifted(int delta, int editLine, int lineDelta, int colDelta) {
+            ErrorRecord r = new ErrorRecord(code, kind, line + lineDelta,
+                                            (line == editLine) ? col + colDelta : col,
+                                            text, start, end, arg, detail);
+            r.offset = offset + delta;
+            r.run    = run;
+            return r;
+        }
+
+        /** True if `next` continues this record's run of one invalid character. */
+        boolean extendedBy(ErrorRecord next) {
+            return code == ErrorCode.INVALID_CHAR && next.code == ErrorCode.INVALID_CHAR
+                && arg == next.arg && line == next.line && col + run == next.col;
+        }
+
+        @Override public ErrorCode code() { return code;  }
+        @Override public int       line() { return line;  }
+        @Override public int       col()  { return col;   }
+        @Override public int       width() { return run;  }
+
+        @Override
+        public String lexeme() {
+            if (text != null) return text.subSequence(start, end).toString();
+            switch (code) {
+                case INVALID_CHAR: return String.valueOf((char) arg);
+                case BAD_ESCAPE:   return "\\" + new String(Character.toChars(arg));
+                case BAD_ENCODING: return String.format("\\x%02X", arg);
+                default:           return "";
+            }
+        }
+
+        @Override
+        public String category() { return (code != null) ? code.category() : kind; }
+
+        @Override
+        public String message() {
+            if (code == null) return detail;
+            String m = code.message(lexeme(), arg);
+            return (run > 1) ? m + " (" + run + " in a row, to col " + (col + run - 1) + ")" : m;
+        }
+
         @Override
         public String toString() {
             return String.format("ERROR [%s] Line: %d, Col: %d  lexeme='%s'  -> %s",
-                                 kind, line, col, lexeme, detail);
+                                 category(), line, col, lexeme(), message());
         }
     }
 
@@ -37,12 +105,139 @@ public class ErrorHandler {
 
     private final List<ErrorRecord> log = new ArrayList<>();
 
+    private int     limit = Integer.MAX_VALUE;
+    private boolean abortOnLimit;
+    private boolean collapseRuns;
+    private int     suppressed;      // records dropped past the limit
+    private int     count;           // records logged, kept or not
+    private ErrorRecord last;        // latest record logged
+
+    private DiagnosticSink sink;
+    private boolean        keep = true;
+    private ErrorRecord    unsent;   // logged but not yet delivered (a run may still grow)
+
+    // ── Budget ────────────────────────────────────────────────────────────────
+
+    /**
+     * Keeps at most `maxErrors` records; later ones are counted by
+     * suppressedCount() but not stored.
+     */
+    public void setLimit(int maxErrors) {
+        if (maxErrors <= 0) throw new IllegalArgumentException("error limit must be positive: " + maxErrors);
+        limit = maxErrors;
+    }
+
+    /** Asks scanners to stop once the limit is reached (see shouldAbort). */
+    public void setAbortOnLimit(boolean abort) {
+        abortOnLimit = abort;
+    }
+
+    /**
+     * Merges an INVALID_CHAR into the previous record when it repeats the
+     * same character in the next column, so a run is one ranged record.
+     */
+    public void setCollapseRuns(boolean collapse) {
+        collapseRuns = collapse;
+    }
+
+    /** Takes over the limit, abort and collapse settings of `other`. */
+    public void copySettings(ErrorHandler other) {
+        limit        = other.limit;
+        abortOnLimit = other.abortOnLimit;
+        collapseRuns = other.collapseRuns;
+    }
+
+    public boolean isLimited()       { return limit != Integer.MAX_VALUE; }
+    public boolean abortsOnLimit()   { return abortOnLimit;               }
+    public boolean limitReached()    { return count >= limit;             }
+    public int     suppressedCount() { return suppressed;                 }
+
+    /** True once the limit is reached and the scan should stop. */
+    public boolean shouldAbort() {
+        return abortOnLimit && count >= limit;
+    }
+
+    // ── Streaming ─────────────────────────────────────────────────────────────
+
+    /**
+     * Delivers every record to `sink` as it is logged, in source order.
+     * Without `keepRecords` the records are dropped once delivered: counts
+     * still work, but the per-record queries, allMessages() and relexing
+     * need them kept.
+     *
+     * With run collapsing on, a record is delivered when the next one is
+     * logged (its run may still grow until then), so call flush() at the
+     * end of the scan; ManualScanner does so at END_OF_FILE.
+     *
+     * @throws IllegalStateException  if records have already been logged
+     */
+    public void setSink(DiagnosticSink sink, boolean keepRecords) {
+        if (count > 0) throw new IllegalStateException("the sink must be set before the first error");
+        this.sink = sink;
+        this.keep = keepRecords;
+    }
+
+    /** True unless a sink was set without keeping records. */
+    public boolean keepsRecords() {
+        return keep;
+    }
+
+    /** Delivers the record held back for run collapsing, if any. */
+    public void flush() {
+        if (unsent != null) {
+            ErrorRecord r = unsent;
+            unsent = null;
+            sink.report(r);
+        }
+    }
+
+    /** Stores `r`, applying the collapse and limit settings. */
+    private void add(ErrorRecord r) {
+        if (collapseRuns && last != null && last.extendedBy(r)) {
+            last.run += r.run;
+            return;
+        }
+        if (count >= limit) {
+            suppressed++;
+            return;
+        }
+        count++;
+        last = r;
+        if (keep) log.add(r);
+        if (sink != null) {
+            flush();
+            unsent = r;
+            if (!collapseRuns) flush();
+        }
+    }
+
+    // ── Reporting ─────────────────────────────────────────────────────────────
+
+    /**
+     * Logs `code` for the lexeme text[start, end). `text` is kept, not
+     * copied, so it must not change afterwards.
+     *
+     * @param arg  numeric detail used by the message (0 if none)
+     */
+    public void report(ErrorCode code, int line, int col,
+                       CharSequence text, int start, int end, int arg) {
+        add(new ErrorRecord(code, null, line, col, text, start, end, arg, null));
+    }
+
+    /**
+     * Logs `code` for a lexeme given by `arg` alone: the character of an
+     * INVALID_CHAR, the code point after the backslash of a BAD_ESCAPE or
+     * the lead byte of a BAD_ENCODING.
+     */
+    public void report(ErrorCode code, int line, int col, int arg) {
+        add(new ErrorRecord(code, null, line, col, null, 0, 0, arg, null));
+    }
+
     // ── Reporting helpers ─────────────────────────────────────────────────────
 
     /** Logs an unrecognised character. */
     public void badChar(char ch, int line, int col) {
-        push("INVALID_CHAR", line, col, String.valueOf(ch),
-             "Character '" + ch + "' is not part of the ZenLang alphabet");
+        report(ErrorCode.INVALID_CHAR, line, col, ch);
     }
 
     /** Logs a malformed numeric literal. */
@@ -57,37 +252,129 @@ public class ErrorHandler {
 
     /** Logs a string literal that was never closed. */
     public void unterminatedString(String partial, int line, int col) {
-        push("UNTERMINATED_STRING", line, col, partial,
-             "String literal opened with '\"' but never closed");
+        report(ErrorCode.UNTERMINATED_STRING, line, col, partial, 0, partial.length(), 0);
     }
 
     /** Logs a character literal that was never closed. */
     public void unterminatedChar(String partial, int line, int col) {
-        push("UNTERMINATED_CHAR", line, col, partial,
-             "Character literal opened with ''' but never closed");
+        report(ErrorCode.UNTERMINATED_CHAR, line, col, partial, 0, partial.length(), 0);
     }
 
     /** Logs a block comment that was never closed. */
     public void unterminatedComment(int line, int col) {
-        push("UNTERMINATED_COMMENT", line, col, "#*",
-             "Block comment opened with '#*' but '*#' was never found");
+        report(ErrorCode.UNTERMINATED_COMMENT, line, col, "#*", 0, 2, 0);
     }
 
     /** Logs an invalid escape sequence inside a string or char literal. */
     public void badEscape(String seq, int line, int col) {
-        push("BAD_ESCAPE", line, col, seq,
-             "Unrecognised escape sequence. Valid: \\n \\t \\r \\\" \\' \\\\");
+        report(ErrorCode.BAD_ESCAPE, line, col, seq, 0, seq.length(), 0);
+    }
+
+    /** Logs a malformed UTF-8 sequence inside a literal (byte input only). */
+    public void badEncoding(int leadByte, int line, int col) {
+        report(ErrorCode.BAD_ENCODING, line, col, leadByte);
+    }
+
+    /**
+     * Appends the records of `other` from index `from` on, keeping their
+     * order (used to merge the logs of parallel scanning chunks).
+     */
+    public void addAll(ErrorHandler other, int from) {
+        addAll(other, from, other.log.size());
+    }
+
+    /**
+     * Appends records [from, to) of `other`, keeping their order. The
+     * limit and collapse settings apply as if they were reported here.
+     */
+    public void addAll(ErrorHandler other, int from, int to) {
+        if (!collapseRuns && !isLimited() && sink == null && keep) {
+            if (from == to) return;
+            log.addAll(other.log.subList(from, to));
+            count = log.size();
+            last  = log.get(count - 1);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            add(other.log.get(i).shifted(0, 0, 0, 0));    // a copy: runs grow in place
+        }
     }
 
-    /** General-purpose error entry point. */
+    /**
+     * Replaces records [from, to) with those of `other`, for a text edit
+     * that re-lexed their region: the records after them move by `delta`
+     * offsets and `lineDelta` lines, and those on `editLine` (the line the
+     * edit ended on, numbered as before it) also by `colDelta` columns.
+     * Runs are collapsed across the new neighbours as report() would
+     * collapse them. The sink is not called: nothing new was scanned past
+     * the edit, and the new records are a re-lex of what it already saw.
+     */
+    public void replace(int from, int to, ErrorHandler other,
+                        int delta, int editLine, int lineDelta, int colDelta) {
+        List<ErrorRecord> tail = new ArrayList<>(log.subList(to, log.size()));
+        log.subList(from, log.size()).clear();
+        last = log.isEmpty() ? null : log.get(log.size() - 1);
+        for (ErrorRecord r : other.log) append(r.shifted(0, 0, 0, 0));
+        for (ErrorRecord r : tail)      append(r.shifted(delta, editLine, lineDelta, colDelta));
+        count = log.size();
+    }
+
+    private void append(ErrorRecord r) {
+        if (collapseRuns && last != null && last.extendedBy(r)) {
+            last.run += r.run;
+        } else {
+            log.add(r);
+            last = r;
+        }
+    }
+
+    /**
+     * Tags records from index `from` on with the source offset of the
+     * lexeme that raised them, so they can be located after an edit.
+     */
+    public void setOffsets(int from, int offset) {
+        for (int i = from; i < log.size(); i++) log.get(i).offset = offset;
+    }
+
+    /**
+     * Number of records raised by lexemes starting before `offset`
+     * (records are in source order, so they form a prefix of the log).
+     */
+    public int countBefore(int offset) {
+        int lo = 0, hi = log.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (log.get(mid).offset < offset) lo = mid + 1;
+            else                              hi = mid;
+        }
+        return lo;
+    }
+
+    /** General-purpose entry point for a free-form error. */
     public void push(String kind, int line, int col, String lexeme, String detail) {
-        log.add(new ErrorRecord(kind, line, col, lexeme, detail));
+        add(new ErrorRecord(null, kind, line, col, lexeme, 0, lexeme.length(), 0, detail));
     }
 
     // ── Query ─────────────────────────────────────────────────────────────────
 
-    public boolean hasErrors()  { return !log.isEmpty(); }
-    public int     errorCount() { return log.size();     }
+    public boolean hasErrors()  { return count > 0; }
+    public int     errorCount() { return count;     }
+
+    // Per-record queries need the records kept (see setSink)
+
+    /** Code of record i, or null if it was logged with push(). */
+    public ErrorCode code(int i)     { return log.get(i).code;       }
+    public int       line(int i)     { return log.get(i).line;       }
+    public int       col(int i)      { return log.get(i).col;        }
+
+    /** Columns covered by record i (more than 1 for a collapsed run). */
+    public int       width(int i)    { return log.get(i).run;        }
+
+    /** Category of record i, e.g. BAD_NUMBER. */
+    public String    category(int i) { return log.get(i).category(); }
+
+    /** Formats the message of record i. */
+    public String    message(int i)  { return log.get(i).message();  }
 
     /** Returns all error messages as strings (for testing). */
     public List<String> allMessages() {
@@ -97,25 +384,39 @@ public class ErrorHandler {
     }
 
     /** Clears all recorded errors. */
-    public void reset() { log.clear(); }
+    public void reset() {
+        log.clear();
+        suppressed = 0;
+        count      = 0;
+        last       = null;
+        unsent     = null;
+    }
 
     // ── Display ───────────────────────────────────────────────────────────────
 
     /** Prints the full error report to standard output. */
     public void display() {
-        if (log.isEmpty()) {
+        if (count == 0) {
             System.out.println("\n✓ No lexical errors detected.");
             return;
         }
 
         final int W = 82;
         System.out.println("\n" + "=".repeat(W));
-        System.out.println("LEXICAL ERROR REPORT  (" + log.size() + " error(s))");
+        System.out.println("LEXICAL ERROR REPORT  (" + count + " error(s))");
         System.out.println("=".repeat(W));
 
+        if (!keep) System.out.println("  (reported to the diagnostic sink as found; not kept)");
+
         for (int i = 0; i < log.size(); i++) {
             System.out.printf("  %2d. %s%n", i + 1, log.get(i));
         }
+        if (suppressed > 0) {
+            System.out.println("  ... and " + suppressed + " more past the limit of " + limit + " error(s)");
+        }
+        if (shouldAbort()) {
+            System.out.println("  Scanning stopped at the error limit.");
+        }
 
         System.out.println("=".repeat(W) + "\n");
     }
@@ -0,0 +1,63 @@
+/**
+ * FastScan.java
+ * Run-skipping kernels for the ManualScanner readers whose loops consume
+ * long stretches of uninteresting input: whitespace, comment bodies and
+ * text literal bodies.
+ *
+ * Each kernel returns the first position that the caller must look at
+ * character by character again. The characters before it are plain ASCII
+ * (or any non-newline char for String input) and contain no newline, so
+ * the caller can advance the column by the distance skipped.
+ *
+ *   ByteSource  – eight bytes per step (see ByteSource.skipUntil)
+ *   String      – String.indexOf for a single stop searched for up to
+ *                 the end of the text, else a tight loop with no
+ *                 per-character line/column bookkeeping
+ */
+final class FastScan {
+
+    private FastScan() {}
+
+    /**
+     * Returns the first index in [from, to) holding a, b or c (or, for byte
+     * input, any non-ASCII byte); `to` if there is none. Pass the same
+     * character more than once for fewer stops.
+     */
+    static int skipUntil(CharSequence src, int from, int to, char a, char b, char c) {
+        if (src instanceof ByteSource) {
+            return ((ByteSource) src).skipUntil(from, to, a, b, c);
+        }
+        if (a == b && b == c && src instanceof String && to == src.length()) {
+            int i = ((String) src).indexOf(a, from);    // unbounded, so only for a search to the end
+            return (i < 0) ? to : i;
+        }
+        int i = from;
+        while (i < to) {
+            char ch = src.charAt(i);
+            if (ch == a || ch == b || ch == c) break;
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the first index in [from, to) holding a, including on byte
+     * input where non-ASCII bytes do not stop the scan; `to` if none.
+     */
+    static int indexOf(CharSequence src, char a, int from, int to) {
+        if (src instanceof ByteSource) {
+            return ((ByteSource) src).indexOf(a, from, to);
+        }
+        return skipUntil(src, from, to, a, a, a);
+    }
+
+    /** Returns the first index in [from, to) that is not ' '; `to` if none. */
+    static int skipSpaces(CharSequence src, int from, int to) {
+        if (src instanceof ByteSource) {
+            return ((ByteSource) src).skipSpaces(from, to);
+        }
+        int i = from;
+        while (i < to && src.charAt(i) == ' ') i++;
+        return i;
+    }
+}
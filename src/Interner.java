@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * Interner.java
+ * Maps identifier spellings to dense integer symbol IDs (0, 1, 2, ... in
+ * the order the names are first seen).
+ *
+ * Names are keyed by slices of any CharSequence, so a scanner can intern
+ * a lexeme straight from its source buffer: a lookup allocates nothing,
+ * and the key of a new name is just its first slice (buffer, offset,
+ * length). The name is only copied into a String when name() asks for it.
+ * Later phases can then compare identifiers by ID instead of by text.
+ *
+ * The table is open-addressed with linear probing and kept at most half
+ * full. It is not thread-safe.
+ */
+public final class Interner {
+
+    private int[]          slots   = new int[64];           // id + 1, or 0 if empty
+    private int[]          hashes  = new int[32];           // by id
+    private CharSequence[] keys    = new CharSequence[32];  // buffer of the first slice
+    private int[]          starts  = new int[32];
+    private int[]          lengths = new int[32];
+    private String[]       names   = new String[32];        // null until name() is called
+    private int            size;
+
+    // ── Lookup ────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns the ID of src[offset, offset + length), adding the name if
+     * new. The slice becomes the key of a new name, so `src` must not
+     * change afterwards (a String or a retained source buffer).
+     */
+    public int intern(CharSequence src, int offset, int length) {
+        int h    = hash(src, offset, length);
+        int mask = slots.length - 1;
+        int i    = h & mask;
+        for (int s; (s = slots[i]) != 0; i = (i + 1) & mask) {
+            if (hashes[s - 1] == h && matches(s - 1, src, offset, length)) return s - 1;
+        }
+        return add(i, h, src, offset, length);
+    }
+
+    /** Returns the ID of name `id` of another interner, adding it if new. */
+    public int intern(Interner other, int id) {
+        return intern(other.keys[id], other.starts[id], other.lengths[id]);
+    }
+
+    /** Returns the ID of `name`, adding it if new. */
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /** Returns the ID of `name`, or -1 if it has not been interned. */
+    public int find(CharSequence name) {
+        int h    = hash(name, 0, name.length());
+        int mask = slots.length - 1;
+        for (int i = h & mask, s; (s = slots[i]) != 0; i = (i + 1) & mask) {
+            if (hashes[s - 1] == h && matches(s - 1, name, 0, name.length())) return s - 1;
+        }
+        return -1;
+    }
+
+    /** Returns the name with the given ID (copied out of its slice once). */
+    public String name(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("symbol " + id + " of " + size);
+        if (names[id] == null) {
+            CharSequence key = keys[id];
+            names[id] = (key instanceof String && lengths[id] == key.length())
+                      ? (String) key
+                      : key.subSequence(starts[id], starts[id] + lengths[id]).toString();
+        }
+        return names[id];
+    }
+
+    /** Number of distinct names interned so far. */
+    public int size() {
+        return size;
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private int add(int slot, int h, CharSequence src, int offset, int length) {
+        int id = size++;
+        if (id == names.length) {
+            hashes  = Arrays.copyOf(hashes, id * 2);
+            keys    = Arrays.copyOf(keys, id * 2);
+            starts  = Arrays.copyOf(starts, id * 2);
+            lengths = Arrays.copyOf(lengths, id * 2);
+            names   = Arrays.copyOf(names, id * 2);
+        }
+        hashes[id]  = h;
+        keys[id]    = src;
+        starts[id]  = offset;
+        lengths[id] = length;
+        slots[slot] = id + 1;
+        if (2 * size > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    private static int hash(CharSequence src, int offset, int length) {
+        int h = 0;
+        for (int i = offset, end = offset + length; i < end; i++) h = 31 * h + src.charAt(i);
+        return h ^ (h >>> 16);
+    }
+
+    private boolean matches(int id, CharSequence src, int offset, int length) {
+        if (lengths[id] != length) return false;
+        CharSequence key = keys[id];
+        int          at  = starts[id];
+        if (key instanceof String && src instanceof String) {
+            return ((String) key).regionMatches(at, (String) src, offset, length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(at + i) != src.charAt(offset + i)) return false;
+        }
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class JFlexScanner {
     public static void main(String[] args) {
@@ -8,8 +9,8 @@ public class JFlexScanner {
             return;
         }
         try {
-            Yylex scanner = new Yylex(new FileReader(args[0]));
-            Token token;
+            Lexer scanner = Lexer.create("jflex", new FileReader(args[0]));
+            scanner.getErrorLog().setSink(DiagnosticSink.printingTo(System.err), false);
             System.out.println("ZenLang JFlex Scanner  —  scanning: " + args[0]);
             System.out.println("==================================================================================");
             System.out.println("");
@@ -17,10 +18,12 @@ public class JFlexScanner {
             System.out.println("TOKEN STREAM");
             System.out.println("==================================================================================");
             
-            while ((token = scanner.yylex()) != null) {
-                System.out.println(token);
+            for (Token token : scanner) {
+                if (token.getCategory() != TokenType.END_OF_FILE) System.out.println(token);
             }
-        } catch (IOException e) {
+            scanner.getIdTable().display();
+            scanner.getErrorLog().display();
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
         }
     }
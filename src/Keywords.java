@@ -0,0 +1,105 @@
+/**
+ * Keywords.java
+ * Static recogniser for ZenLang reserved words and boolean literals.
+ *
+ * Every word is uniquely identified by its length and first character,
+ * so a two-level switch selects the only possible candidate and a single
+ * region comparison confirms it. Nothing is allocated per lookup.
+ */
+final class Keywords {
+
+    /** The 12 reserved words, in the order they are listed in the README. */
+    static final String[] RESERVED = {
+        "start", "finish", "declare", "condition", "else", "loop",
+        "output", "input", "function", "return", "break", "continue"
+    };
+
+    /** The two boolean literals. */
+    static final String[] BOOLEANS = { "true", "false" };
+
+    /** Length of the longest reserved word or boolean ("condition"). */
+    static final int MAX_LENGTH = 9;
+
+    private Keywords() {}
+
+    // ── Lookup ────────────────────────────────────────────────────────────────
+
+    /**
+     * Classifies the lexeme src[start, end).
+     *
+     * @return KEYWORD, BOOL_LITERAL, or null if the slice is neither
+     */
+    static TokenType classify(CharSequence src, int start, int end) {
+        if (end <= start) return null;
+        String word = candidate(end - start, src.charAt(start));
+        if (word == null) return null;
+        for (int i = 1; i < word.length(); i++) {
+            if (src.charAt(start + i) != word.charAt(i)) return null;
+        }
+        return categoryOf(word);
+    }
+
+    /**
+     * Classifies the lexeme buf[start, end); used for windowed input.
+     *
+     * @return KEYWORD, BOOL_LITERAL, or null if the slice is neither
+     */
+    static TokenType classify(char[] buf, int start, int end) {
+        if (end <= start) return null;
+        String word = candidate(end - start, buf[start]);
+        if (word == null) return null;
+        for (int i = 1; i < word.length(); i++) {
+            if (buf[start + i] != word.charAt(i)) return null;
+        }
+        return categoryOf(word);
+    }
+
+    /**
+     * Returns the only reserved word or boolean with the given length and
+     * first character, or null if there is none.
+     */
+    static String candidate(int length, char first) {
+        switch (length) {
+            case 4:
+                switch (first) {
+                    case 'e': return "else";
+                    case 'l': return "loop";
+                    case 't': return "true";
+                    default:  return null;
+                }
+            case 5:
+                switch (first) {
+                    case 'b': return "break";
+                    case 'f': return "false";
+                    case 'i': return "input";
+                    case 's': return "start";
+                    default:  return null;
+                }
+            case 6:
+                switch (first) {
+                    case 'f': return "finish";
+                    case 'o': return "output";
+                    case 'r': return "return";
+                    default:  return null;
+                }
+            case 7:
+                return (first == 'd') ? "declare" : null;
+            case 8:
+                switch (first) {
+                    case 'c': return "continue";
+                    case 'f': return "function";
+                    default:  return null;
+                }
+            case 9:
+                return (first == 'c') ? "condition" : null;
+            default:
+                return null;
+        }
+    }
+
+    /** Category of a word returned by candidate(). */
+    static TokenType categoryOf(String word) {
+        return (word.equals("true") || word.equals("false")) ? TokenType.BOOL_LITERAL
+                                                              : TokenType.KEYWORD;
+    }
+}
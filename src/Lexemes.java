@@ -0,0 +1,66 @@
+/**
+ * Lexemes.java
+ * Canonical shared text for the token categories whose lexeme never
+ * varies: operators, delimiters, keywords and booleans.
+ *
+ * For these categories the length and the first two characters already
+ * decide the text, so a token can be given the shared String instead of
+ * a fresh copy of its lexeme. Tokens of the other categories (identifiers,
+ * literals, INVALID) still copy their text.
+ */
+final class Lexemes {
+
+    /** One-character operators and delimiters, indexed by character. */
+    private static final String[] SINGLE = new String[128];
+
+    /** Two-character operators. */
+    private static final String[] PAIRS = {
+        "**", "==", "!=", "<=", ">=", "&&", "||",
+        "++", "--", "+=", "-=", "*=", "/=", "%="
+    };
+
+    static {
+        for (char c : "+-*/%=<>!&|(){}[],;:".toCharArray()) {
+            SINGLE[c] = String.valueOf(c);
+        }
+    }
+
+    private Lexemes() {}
+
+    // ── Lookup ────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns the shared text of a `cat` token of the given length that
+     * starts with `first`, `second` (ignored for one-character lexemes),
+     * or null if `cat` has no fixed text.
+     */
+    static String of(TokenType cat, int length, char first, char second) {
+        switch (cat) {
+            case KEYWORD:
+            case BOOL_LITERAL:
+                return Keywords.candidate(length, first);
+            case ARITH_OP:
+            case RELATIONAL_OP:
+            case LOGICAL_OP:
+            case ASSIGN_OP:
+            case INC_OP:
+            case DEC_OP:
+            case DELIMITER:
+                if (length == 1) return (first < SINGLE.length) ? SINGLE[first] : null;
+                if (length == 2) {
+                    for (String p : PAIRS) {
+                        if (p.charAt(0) == first && p.charAt(1) == second) return p;
+                    }
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /** Shared text of the `cat` token at src[offset, offset + length), or null. */
+    static String of(TokenType cat, CharSequence src, int offset, int length) {
+        if (length == 0) return null;
+        return of(cat, length, src.charAt(offset), (length > 1) ? src.charAt(offset + 1) : '\0');
+    }
+}
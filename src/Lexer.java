@@ -0,0 +1,136 @@
+import java.io.*;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lexer.java
+ * Common streaming interface of the ZenLang scanners, and a factory that
+ * picks a scanning engine by name.
+ *
+ * A Lexer yields significant tokens one at a time and, as it goes, records
+ * identifiers in its SymbolTable and errors in its ErrorHandler (set a
+ * DiagnosticSink on the log to receive them as they are found). Every
+ * engine produces the same tokens, identifiers and diagnostics for the
+ * same input, so a parser or a benchmark can switch engines at run time:
+ *
+ *   manual   ManualScanner, hand-coded DFA (Engine.DIRECT)
+ *   table    ManualScanner, table-driven DFA (Engine.TABLE)
+ *   jflex    Yylex, generated by JFlex from Scanner.flex
+ */
+public interface Lexer extends Iterable<Token> {
+
+    /** Engine names accepted by create(), the default first. */
+    List<String> ENGINES = List.of("manual", "table", "jflex");
+
+    /**
+     * Returns the next significant token, skipping whitespace and comments.
+     * The END_OF_FILE sentinel is returned once at the end of input; after
+     * that the result is null.
+     *
+     * @throws UncheckedIOException  if the underlying reader fails
+     */
+    Token nextToken();
+
+    /** Returns true until the END_OF_FILE sentinel has been returned. */
+    boolean hasNext();
+
+    /** Identifiers seen so far. */
+    SymbolTable getIdTable();
+
+    /** Lexical errors found so far. */
+    ErrorHandler getErrorLog();
+
+    /**
+     * Returns an iterator over the remaining tokens, ending with the
+     * END_OF_FILE sentinel. It shares state with nextToken().
+     */
+    @Override
+    default Iterator<Token> iterator() {
+        return new Iterator<Token>() {
+            @Override public boolean hasNext() { return Lexer.this.hasNext(); }
+
+            @Override public Token next() {
+                Token tok = nextToken();
+                if (tok == null) throw new NoSuchElementException();
+                return tok;
+            }
+        };
+    }
+
+    // ── Factory ───────────────────────────────────────────────────────────────
+
+    /**
+     * Lexer of the named engine over the complete source text.
+     *
+     * @throws IllegalArgumentException  if `engine` is not one of ENGINES
+     */
+    static Lexer create(String engine, String source) {
+        switch (engine) {
+            case "manual": return new ManualScanner(source, ManualScanner.Engine.DIRECT);
+            case "table":  return new ManualScanner(source, ManualScanner.Engine.TABLE);
+            case "jflex":  return new Yylex(new StringReader(source));
+            default:       throw unknownEngine(engine);
+        }
+    }
+
+    /**
+     * Lexer of the named engine over a character stream, which is read as
+     * the tokens are requested and is not closed by the lexer.
+     *
+     * @throws IllegalArgumentException  if `engine` is not one of ENGINES
+     */
+    static Lexer create(String engine, Reader in) {
+        switch (engine) {
+            case "manual": return new ManualScanner(in, ManualScanner.Engine.DIRECT);
+            case "table":  return new ManualScanner(in, ManualScanner.Engine.TABLE);
+            case "jflex":  return new Yylex(in);
+            default:       throw unknownEngine(engine);
+        }
+    }
+
+    private static IllegalArgumentException unknownEngine(String engine) {
+        return new IllegalArgumentException("Unknown scanning engine '" + engine
+                                            + "' (expected one of " + String.join(", ", ENGINES) + ")");
+    }
+
+    // ── Main ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Scans a file with the engine chosen on the command line, printing
+     * each token as it is produced, then the identifier table and the
+     * errors (which also go to stderr as they are found).
+     */
+    static void main(String[] args) {
+        String engine   = ENGINES.get(0);
+        String filename = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--engine") && i + 1 < args.length) engine = args[++i];
+            else if (filename == null)                              filename = args[i];
+            else                                                    filename = "";
+        }
+        if (filename == null || filename.isEmpty() || !ENGINES.contains(engine)) {
+            System.out.println("Usage: java Lexer [--engine " + String.join(" | ", ENGINES) + "] <source-file.zl>");
+            return;
+        }
+
+        try (Reader in = new FileReader(filename)) {
+            Lexer lexer = create(engine, in);
+            lexer.getErrorLog().setSink(DiagnosticSink.printingTo(System.err), false);
+
+            System.out.println("ZenLang Lexer (" + engine + ")  —  scanning: " + filename);
+            System.out.println("=".repeat(82));
+            System.out.println("TOKEN STREAM");
+            System.out.println("=".repeat(82));
+            for (Token t : lexer) {
+                if (t.getCategory() != TokenType.END_OF_FILE) System.out.println(t);
+            }
+            System.out.println("=".repeat(82) + "\n");
+
+            lexer.getIdTable().display();
+            lexer.getErrorLog().display();
+        } catch (IOException | UncheckedIOException ex) {
+            System.err.println("Cannot read file: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/**
+ * LineIndex.java
+ * Offsets at which each line of a source buffer starts, built by one fast
+ * newline scan (see FastScan.indexOf).
+ *
+ * With it a scanner only needs to remember token start offsets; the
+ * 1-based line of an offset is found by binary search, and its column by
+ * counting from the start of that line, when a position is displayed.
+ *
+ * Columns count UTF-16 units, as ManualScanner.eat() does: on ByteSource
+ * input a UTF-8 lead byte counts one column (two for a 4-byte sequence)
+ * and continuation bytes count none. Malformed sequences may therefore be
+ * placed differently from eager tracking; well-formed input never is.
+ */
+public final class LineIndex {
+
+    private       CharSequence src;
+    private final boolean      utf8;
+
+    private int[] starts;       // starts[k] = offset of line k + 1
+    private int   count;
+
+    /** Scans `source` for newlines and records every line start. */
+    public LineIndex(CharSequence source) {
+        this.src    = source;
+        this.utf8   = source instanceof ByteSource;
+        this.starts = new int[16];
+        this.count  = 1;                        // line 1 starts at 0
+
+        int len = source.length();
+        int i   = FastScan.indexOf(source, '\n', 0, len);
+        while (i < len) {
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = ++i;
+            i = FastScan.indexOf(source, '\n', i, len);
+        }
+    }
+
+    // ── Edits ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Updates the index for an edit that replaced `removed` characters at
+     * `offset` with `inserted` characters, giving `source`. Only the new
+     * text is scanned for newlines; the line starts after the edit are
+     * moved, not found again.
+     */
+    public void edit(CharSequence source, int offset, int removed, int inserted) {
+        int delta = inserted - removed;
+        int lo    = lineOf(offset);                     // first start past the edit's start
+        int hi    = lineOf(offset + removed);           // first start past its end
+        int tail  = count - hi;
+
+        int added = 0;
+        int end   = offset + inserted;
+        for (int i = FastScan.indexOf(source, '\n', offset, end); i < end;
+                 i = FastScan.indexOf(source, '\n', i + 1, end)) {
+            added++;
+        }
+
+        int need = lo + added + tail;
+        if (need > starts.length) starts = Arrays.copyOf(starts, Math.max(need, starts.length * 2));
+        System.arraycopy(starts, hi, starts, lo + added, tail);
+        for (int k = lo + added; k < need; k++) starts[k] += delta;
+
+        int k = lo;
+        for (int i = FastScan.indexOf(source, '\n', offset, end); i < end;
+                 i = FastScan.indexOf(source, '\n', i + 1, end)) {
+            starts[k++] = i + 1;
+        }
+        count = need;
+        src   = source;
+    }
+
+    // ── Lookup ────────────────────────────────────────────────────────────────
+
+    /** Number of lines (a trailing newline starts one more, empty line). */
+    public int lineCount() {
+        return count;
+    }
+
+    /** Offset of the first character of the 1-based `line`. */
+    public int lineStart(int line) {
+        if (line < 1 || line > count) {
+            throw new IndexOutOfBoundsException("line " + line + " of " + count);
+        }
+        return starts[line - 1];
+    }
+
+    /** Returns the 1-based line containing `offset`. */
+    public int lineOf(int offset) {
+        int k = Arrays.binarySearch(starts, 0, count, offset);
+        return (k >= 0) ? k + 1 : -k - 1;       // insertion point = last start below
+    }
+
+    /** Returns the 1-based column of `offset`. */
+    public int colOf(int offset) {
+        int from = starts[lineOf(offset) - 1];
+        if (!utf8) return offset - from + 1;
+
+        int col = 1;
+        for (int i = from; i < offset; i++) {
+            char ch = src.charAt(i);
+            if (ch < 0x80)        col++;
+            else if (ch >= 0xC0)  col += (ch >= 0xF0) ? 2 : 1;
+        }
+        return col;
+    }
+}
@@ -1,5 +1,12 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * ManualScanner.java
@@ -21,42 +28,49 @@ import java.util.*;
  *  12. Delimiters       ( ) { } [ ] , ; :
  *  13. Whitespace       (skipped, line numbers tracked)
  */
-public class ManualScanner {
+public class ManualScanner implements Lexer {
 
-    // ── Reserved word sets ────────────────────────────────────────────────────
+    // ── Engine selection ──────────────────────────────────────────────────────
 
-    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
-        "start", "finish", "loop", "condition", "declare",
-        "output", "input", "function", "return", "break", "continue", "else"
-    ));
-
-    private static final Set<String> BOOL_WORDS = new HashSet<>(Arrays.asList(
-        "true", "false"
-    ));
+    /**
+     * Strategy used to recognise tokens.
+     *   DIRECT – the chain of reader methods below (the reference engine)
+     *   TABLE  – one DFA driven by TransitionTable, falling back to the
+     *            readers only for malformed input so errors are identical
+     */
+    public enum Engine { DIRECT, TABLE }
 
     // ── Source state ──────────────────────────────────────────────────────────
 
-    private final String src;       // full source text
-    private       int    pos;       // current read position
-    private final int    srcLen;    // length of source
+    private       CharSequence src;     // full source text (null when windowed)
+    private final SourceWindow window;  // refillable window (null for String input)
+    private final boolean      utf8;    // src is raw UTF-8 bytes (ByteSource)
+    private final Engine       engine;  // token recognition strategy
+    private       int          pos;     // current read position (absolute offset)
+    private       int          srcLen;  // length of source (String input only)
 
     // ── Position tracking ─────────────────────────────────────────────────────
 
     private int curLine;            // current line (1-based)
     private int curCol;             // current column (1-based)
+    private int tokStart;           // offset where current token started
     private int tokLine;            // line where current token started
     private int tokCol;             // column where current token started
+    private LineIndex lines;        // set for lazy positions (see setLazyPositions)
 
     // ── Output collections ────────────────────────────────────────────────────
 
-    private final List<Token>      tokenStream;
+    private       TokenBuffer      tokenStream;
     private final SymbolTable     idTable;
     private final ErrorHandler            errorLog;
 
     // ── Statistics ────────────────────────────────────────────────────────────
 
     private final Map<TokenType, Integer> catCounts;
-    private int commentCount;
+    private int     commentCount;
+    private int[]   commentStarts;          // offset of each comment (in-memory source; for relex)
+    private int     emittedCount;           // significant tokens, excluding EOF
+    private boolean eofReturned;            // END_OF_FILE sentinel handed out
 
     // ── Constructor ───────────────────────────────────────────────────────────
 
@@ -66,17 +80,127 @@ public class ManualScanner {
      * @param source  complete source code to analyse
      */
     public ManualScanner(String source) {
+        this(source, Engine.DIRECT);
+    }
+
+    /**
+     * Initialises the lexer with the given source text and engine.
+     *
+     * @param source  complete source code to analyse
+     * @param engine  token recognition strategy
+     */
+    public ManualScanner(String source, Engine engine) {
+        this(source, null, engine);
+    }
+
+    /**
+     * Initialises the lexer over a character stream that is read through a
+     * fixed-size window, so memory does not grow with the input size.
+     * Token texts are copied out of the window; use nextToken() or the
+     * iterator to keep the whole scan in bounded memory.
+     *
+     * @param in      source code to analyse (not closed by the lexer)
+     * @param engine  token recognition strategy
+     */
+    public ManualScanner(Reader in, Engine engine) {
+        this(in, engine, SourceWindow.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Windowed lexer with an explicit initial window size in characters.
+     * The window only grows if a single lexeme does not fit in it.
+     */
+    public ManualScanner(Reader in, Engine engine, int windowSize) {
+        this(null, new SourceWindow(in, windowSize), engine);
+    }
+
+    /** Windowed lexer over a character stream using the DIRECT engine. */
+    public ManualScanner(Reader in) {
+        this(in, Engine.DIRECT);
+    }
+
+    /**
+     * Initialises the lexer over a UTF-8 encoded byte channel, read through
+     * a fixed-size window (see the Reader constructor).
+     *
+     * @param in      source code to analyse (not closed by the lexer)
+     * @param engine  token recognition strategy
+     */
+    public ManualScanner(ReadableByteChannel in, Engine engine) {
+        this(Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), -1), engine);
+    }
+
+    /** Windowed lexer over a UTF-8 byte channel using the DIRECT engine. */
+    public ManualScanner(ReadableByteChannel in) {
+        this(in, Engine.DIRECT);
+    }
+
+    /**
+     * Initialises the lexer directly over UTF-8 encoded bytes, typically a
+     * MappedByteBuffer from mapFile(), without decoding them to a String.
+     * Offsets count bytes; lines, columns and errors match the String path.
+     * Only multi-byte sequences are decoded (see the UTF-8 input helpers).
+     *
+     * @param bytes   source code to analyse (read with absolute gets, from 0 to limit)
+     * @param engine  token recognition strategy
+     */
+    public ManualScanner(ByteBuffer bytes, Engine engine) {
+        this(new ByteSource(bytes), null, engine);
+    }
+
+    /** Lexer over a UTF-8 byte array; see the ByteBuffer constructor. */
+    public ManualScanner(byte[] utf8, Engine engine) {
+        this(ByteBuffer.wrap(utf8), engine);
+    }
+
+    private ManualScanner(CharSequence source, SourceWindow window, Engine engine) {
         this.src         = source;
-        this.srcLen      = source.length();
+        this.window      = window;
+        this.utf8        = source instanceof ByteSource;
+        this.engine      = engine;
+        this.srcLen      = (source != null) ? source.length() : 0;
         this.pos         = 0;
         this.curLine     = 1;
         this.curCol      = 1;
 
-        this.tokenStream = new ArrayList<>();
+        this.tokenStream = new TokenBuffer(source);
         this.idTable     = new SymbolTable();
         this.errorLog    = new ErrorHandler();
         this.catCounts   = new HashMap<>();
         this.commentCount = 0;
+        this.commentStarts = (source != null) ? new int[16] : null;
+    }
+
+    /** Scanner for one chunk of `parent`'s source, starting at `from` (see Chunk). */
+    private ManualScanner(ManualScanner parent, int from) {
+        this(parent.src, null, parent.engine);
+        this.lines       = parent.lines;
+        this.tokenStream = new TokenBuffer(src, lines);
+        this.pos         = from;
+    }
+
+    /**
+     * Chooses lazy position tracking. The scanner then records only token
+     * start offsets: a LineIndex is built by one newline scan up front,
+     * eat() does no line/column bookkeeping, and tokens and errors get
+     * their line and column from the index by binary search. Output is the
+     * same either way (see LineIndex for malformed UTF-8).
+     *
+     * Must be called before the first token is read; not available for
+     * windowed input, whose earlier text is gone by the time a position
+     * would be resolved.
+     *
+     * @throws IllegalStateException  if scanning has started or the input is windowed
+     */
+    public void setLazyPositions(boolean lazy) {
+        if (window != null) {
+            throw new IllegalStateException("lazy positions need the whole source in memory");
+        }
+        if (pos > 0 || eofReturned) {
+            throw new IllegalStateException("position tracking must be chosen before scanning");
+        }
+        lines       = lazy ? new LineIndex(src) : null;
+        tokenStream = new TokenBuffer(src, lines);
     }
 
     // ── Main entry point ──────────────────────────────────────────────────────
@@ -86,29 +210,475 @@ public class ManualScanner {
      * Call this once before using any of the display/get methods.
      */
     public void tokenise() {
-        while (pos < srcLen) {
-            markTokenStart();
-            Token tok = readNextToken();
+        Token tok;
+        while ((tok = nextToken()) != null) {
+            tokenStream.add(tok);
+        }
+    }
+
+    // ── Streaming API ─────────────────────────────────────────────────────────
 
+    /**
+     * Returns the next significant token, skipping whitespace and comments,
+     * in the same way Yylex.yylex() does. The END_OF_FILE sentinel is
+     * returned once at the end of input; after that the result is null.
+     *
+     * Tokens returned here are not stored in the token stream, but the
+     * identifier table, error log and statistics are updated as they are
+     * produced, so a consumer can run in constant memory.
+     *
+     * If the error log asks to abort (see ErrorHandler.setAbortOnLimit),
+     * the rest of the input is skipped and END_OF_FILE comes next.
+     */
+    @Override
+    public Token nextToken() {
+        while (avail(pos) && !errorLog.shouldAbort()) {
+            Token tok = scanToken();
             if (tok == null) continue;
 
             TokenType cat = tok.getCategory();
+            emittedCount++;
+            catCounts.merge(cat, 1, Integer::sum);
 
-            if (cat == TokenType.LINE_COMMENT ||
-                cat == TokenType.BLOCK_COMMENT) {
-                commentCount++;                         // count but don't emit
-            } else if (cat != TokenType.SPACE) {
-                tokenStream.add(tok);
-                catCounts.merge(cat, 1, Integer::sum);
+            if (cat == TokenType.IDENTIFIER) {
+                idTable.record(tok);
+            }
+            return tok;
+        }
+
+        if (eofReturned) return null;
+
+        // Sentinel
+        eofReturned = true;
+        errorLog.flush();
+        if (lines != null) return new Token(TokenType.END_OF_FILE, src, pos, 0, lines);
+        return (window == null) ? new Token(TokenType.END_OF_FILE, src, pos, 0, curLine, curCol)
+                                : new Token(TokenType.END_OF_FILE, "", pos, curLine, curCol);
+    }
+
+    /**
+     * Recognises one lexeme at `pos`. Returns it if it is significant;
+     * returns null for whitespace, comments (which are counted) and
+     * characters skipped after an error.
+     */
+    private Token scanToken() {
+        markTokenStart();
+        int errors = errorLog.errorCount();
+        Token tok  = (engine == Engine.TABLE) ? readNextTokenTable()
+                                              : readNextToken();
+        if (errorLog.errorCount() != errors) errorLog.setOffsets(errors, tokStart);
+        if (tok == null) return null;
+
+        TokenType cat = tok.getCategory();
+        if (cat == TokenType.LINE_COMMENT || cat == TokenType.BLOCK_COMMENT) {
+            addComment(tokStart);                       // count but don't emit
+            return null;
+        }
+        return (cat == TokenType.SPACE) ? null : tok;
+    }
+
+    private void addComment(int offset) {
+        if (commentStarts != null) {
+            if (commentCount == commentStarts.length) {
+                commentStarts = Arrays.copyOf(commentStarts, commentCount * 2);
+            }
+            commentStarts[commentCount] = offset;
+        }
+        commentCount++;
+    }
+
+    /** Returns true until the END_OF_FILE sentinel has been returned. */
+    @Override
+    public boolean hasNext() {
+        return !eofReturned;
+    }
 
-                if (cat == TokenType.IDENTIFIER) {
-                    idTable.record(tok.getText(), tok.getLine(), tok.getCol());
+    // ── Parallel scanning ─────────────────────────────────────────────────────
+    //
+    // The source is cut into chunks, preferably just after a newline, and
+    // every chunk is scanned on its own from its cut. A cut may fall inside
+    // a block comment, a literal or a whitespace run, so a chunk's first few
+    // tokens can be wrong. They are discarded by resynchronisation: scanning
+    // depends only on the position a lexeme starts at, so once a chunk
+    // reaches a lexeme start that the previous chunk also reached (the point
+    // where that chunk stopped), everything from there on is exactly what a
+    // sequential scan produces. A chunk that never meets that point within
+    // SYNC_WINDOW characters is simply rescanned from it.
+
+    /** Default chunk length for tokeniseParallel(), in characters (bytes for byte input). */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /** How far past its cut a chunk keeps the marks used to resynchronise. */
+    private static final int SYNC_WINDOW = 1 << 16;
+
+    /** tokeniseParallel() on the common pool with the default chunk size. */
+    public void tokeniseParallel() {
+        tokeniseParallel(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Scans the source in chunks on `pool` and merges the results in source
+     * order. The token stream, identifier table, error log and statistics
+     * are exactly those of tokenise(). Positions are resolved lazily (see
+     * setLazyPositions), which the chunks need to place their tokens.
+     *
+     * A DiagnosticSink on the error log receives the errors in source
+     * order as the chunks are merged, that is once every chunk is scanned.
+     *
+     * An error log that aborts on its limit makes this a plain tokenise():
+     * stopping early is the point, and chunks past the limit would be
+     * scanned for nothing.
+     *
+     * @param pool       pool to scan the chunks on
+     * @param chunkSize  nominal chunk length (&gt; 0)
+     * @throws IllegalStateException  if scanning has started or the input is windowed
+     */
+    public void tokeniseParallel(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        if (lines == null) {
+            setLazyPositions(true);
+        } else if (pos > 0 || eofReturned) {
+            throw new IllegalStateException("position tracking must be chosen before scanning");
+        }
+        if (errorLog.abortsOnLimit()) {
+            tokenise();
+            return;
+        }
+
+        // Phase 1: scan every chunk from its cut
+        List<ForkJoinTask<Chunk>> scans = new ArrayList<>();
+        int from = 0;
+        while (from < srcLen || scans.isEmpty()) {
+            int to = cutAfter(from, chunkSize);
+            Chunk chunk = new Chunk(this, from, to);
+            scans.add(pool.submit(chunk::scan));
+            from = to;
+        }
+
+        // Resynchronise in order; `p` is where the previous chunk stopped
+        List<Chunk> chunks = new ArrayList<>();
+        int p = 0;
+        for (ForkJoinTask<Chunk> scan : scans) {
+            Chunk chunk = scan.join();
+            if (!chunk.startAt(p)) {
+                chunk = new Chunk(this, p, chunk.to).scan();
+                chunk.startAt(p);
+            }
+            chunks.add(chunk);
+            p = chunk.end;
+        }
+
+        // Phase 2: per-chunk identifier tables and category counts
+        List<ForkJoinTask<Chunk>> summaries = new ArrayList<>();
+        for (Chunk chunk : chunks) summaries.add(pool.submit(chunk::summarise));
+
+        // Merge in source order
+        for (ForkJoinTask<Chunk> summary : summaries) {
+            Chunk chunk = summary.join();
+            ManualScanner part = chunk.lexer;
+            int[] symbolMap = idTable.addAll(part.idTable);
+            tokenStream.addAll(part.tokenStream, chunk.firstToken, symbolMap);
+            errorLog.addAll(part.errorLog, chunk.firstError);
+            part.catCounts.forEach((cat, n) -> catCounts.merge(cat, n, Integer::sum));
+            emittedCount += part.tokenStream.size() - chunk.firstToken;
+            for (int k = chunk.firstComment; k < part.commentCount; k++) addComment(part.commentStarts[k]);
+        }
+
+        pos         = srcLen;
+        eofReturned = true;
+        errorLog.flush();
+        tokenStream.add(new Token(TokenType.END_OF_FILE, src, pos, 0, lines));
+    }
+
+    /**
+     * Returns the end of the chunk starting at `from`: just after the
+     * first newline at or beyond from + size, or the nominal end if that
+     * line is longer than another chunk. Lines are a cheap, usually exact
+     * guess at a lexeme boundary; only block comments and whitespace runs
+     * cross them.
+     */
+    private int cutAfter(int from, int size) {
+        if (srcLen - from <= size) return srcLen;
+        int nominal = from + size;
+        int nl = FastScan.indexOf(src, '\n', nominal, (int) Math.min(srcLen, (long) nominal + size));
+        return (nl < srcLen && at(nl) == '\n') ? nl + 1 : nominal;
+    }
+
+    /**
+     * One chunk of a parallel scan: the source from a cut up to the first
+     * lexeme that starts at or after `to`. Marks record, for each lexeme
+     * start near the cut, how much output had been produced before it.
+     */
+    private static final class Chunk {
+        final ManualScanner lexer;
+        final int           to;
+        int                 end;        // first lexeme start at or after `to`
+
+        private int[] marks = new int[4 * 64];  // (pos, tokens, errors, comments) per mark
+        private int   markCount;
+
+        int firstToken, firstError, firstComment;  // output kept, from startAt()
+
+        Chunk(ManualScanner parent, int from, int to) {
+            this.lexer = new ManualScanner(parent, from);
+            this.to    = to;
+        }
+
+        Chunk scan() {
+            ManualScanner m = lexer;
+            long limit = (long) m.pos + SYNC_WINDOW;
+            while (m.avail(m.pos) && m.pos < to) {
+                if (m.pos < limit) mark();
+                Token tok = m.scanToken();
+                if (tok != null) m.tokenStream.add(tok);
+            }
+            end = m.pos;
+            mark();
+            return this;
+        }
+
+        private void mark() {
+            if (markCount * 4 == marks.length) marks = Arrays.copyOf(marks, marks.length * 2);
+            int i = 4 * markCount++;
+            marks[i]     = lexer.pos;
+            marks[i + 1] = lexer.tokenStream.size();
+            marks[i + 2] = lexer.errorLog.errorCount();
+            marks[i + 3] = lexer.commentCount;
+        }
+
+        /**
+         * Keeps only the output produced from lexeme start `p` on.
+         * Returns false if this chunk never started a lexeme at `p`.
+         */
+        boolean startAt(int p) {
+            for (int i = 0; i < markCount; i++) {
+                int at = marks[4 * i];
+                if (at > p) break;
+                if (at == p) {
+                    firstToken   = marks[4 * i + 1];
+                    firstError   = marks[4 * i + 2];
+                    firstComment = marks[4 * i + 3];
+                    return true;
                 }
             }
+            return false;
+        }
+
+        /** Builds the identifier table and category counts of the kept tokens. */
+        Chunk summarise() {
+            TokenBuffer tokens = lexer.tokenStream;
+            for (int i = firstToken; i < tokens.size(); i++) {
+                TokenType cat = tokens.category(i);
+                lexer.catCounts.merge(cat, 1, Integer::sum);
+                if (cat == TokenType.IDENTIFIER) tokens.setSymbol(i, lexer.idTable.record(tokens.get(i)));
+            }
+            return this;
+        }
+    }
+
+    // ── Incremental re-lexing ─────────────────────────────────────────────────
+    //
+    // After an edit only the lexemes near it can change. Re-lexing restarts
+    // at a token before the edit that no earlier lexeme looked past, and
+    // stops at the first lexeme start past the edit that is also a token
+    // start of the old stream: the text from there on is unchanged, so the
+    // old tokens and errors from there on are still right once moved by the
+    // length difference. This also covers edits that open or close a block
+    // comment or literal, however far the change in state reaches.
+    //
+    // The scanner is patched in place. The tokens, errors and comments of
+    // the re-lexed region are spliced in and those after it are moved (array
+    // copies, nothing is scanned or hashed again); the identifier table only
+    // loses the identifiers of the old region and gains those of the new.
+    // The text itself becomes an EditedSource, so it is not copied either.
+
+    /**
+     * Applies an edit to this scanner's source: `removed` characters at
+     * `offset` are replaced by `inserted`. The token stream, identifier
+     * table, error log and statistics become exactly what tokenise() would
+     * produce for the edited text, but only the region around the edit is
+     * re-lexed. Returns this scanner, so edits can be chained.
+     *
+     * The first edit switches the scanner to lazy positions (see
+     * setLazyPositions): edits then move line starts, not the position of
+     * every later token.
+     *
+     * @throws IllegalStateException      unless this scanner was built from a
+     *                                    String and tokenise() has run
+     * @throws IndexOutOfBoundsException  if the edit is outside the source
+     */
+    public ManualScanner relex(int offset, int removed, String inserted) {
+        if (!(src instanceof String || src instanceof EditedSource) || !eofReturned || tokenStream.size() == 0) {
+            throw new IllegalStateException("relex() needs a String source scanned with tokenise()");
+        }
+        if (errorLog.isLimited() || !errorLog.keepsRecords()) {
+            throw new IllegalStateException("relex() needs an error log that keeps every record");
+        }
+        if (offset < 0 || removed < 0 || offset + removed > srcLen) {
+            throw new IndexOutOfBoundsException("edit " + offset + "+" + removed + " of " + srcLen);
+        }
+        if (lines == null) {
+            lines = new LineIndex(src);
+            TokenBuffer placed = new TokenBuffer(src, lines);
+            placed.addAll(tokenStream, 0, tokenStream.size(), 0);
+            tokenStream = placed;
+        }
+
+        TokenBuffer tokens = tokenStream;
+        int n       = tokens.size() - 1;                 // without END_OF_FILE
+        int restart = restartToken(offset, n);
+        int first   = Math.max(restart, 0);
+        int from    = (restart >= 0) ? tokens.offset(restart) : 0;
+
+        // Edit the text and move the line starts after the edit
+        int delta    = inserted.length() - removed;
+        int oldEnd   = offset + removed;
+        int newEnd   = offset + inserted.length();       // end of the edit in the new text
+        int editLine = lines.lineOf(oldEnd);
+        int editCol  = lines.colOf(oldEnd);
+        src = EditedSource.edit(src, offset, removed, inserted);
+        srcLen = src.length();
+        lines.edit(src, offset, removed, inserted.length());
+        int lineShift = lines.lineOf(newEnd) - editLine;
+        int colShift  = lines.colOf(newEnd) - editCol;
+
+        // Re-lex until a lexeme start lines up with an old token start
+        ManualScanner part = new ManualScanner(this, from);
+        part.errorLog.copySettings(errorLog);
+        int j = first;
+        while (part.avail(part.pos)) {
+            if (part.pos >= newEnd) {
+                int oldPos = part.pos - delta;
+                while (j < n && tokens.offset(j) < oldPos) j++;
+                if (j < n && tokens.offset(j) == oldPos) break;
+            }
+            Token tok = part.scanToken();
+            if (tok != null) part.tokenStream.add(tok);
         }
+        int sync = part.pos - delta;                     // in old coordinates
+        j = tokens.firstAtOrAfter(sync);
+
+        // Statistics: swap the old region's share for the new one's
+        for (int i = first; i < j; i++)                     catCounts.merge(tokens.category(i), -1, Integer::sum);
+        for (int i = 0; i < part.tokenStream.size(); i++)   catCounts.merge(part.tokenStream.category(i), 1, Integer::sum);
+        catCounts.values().removeIf(c -> c == 0);
+        replaceComments(from, sync, part, delta);
+
+        int[] renumbered = patchIdentifiers(part.tokenStream, first, j, from, part.pos,
+                                            delta, editLine, editCol, lineShift, colShift);
+        errorLog.replace(errorLog.countBefore(from), errorLog.countBefore(sync), part.errorLog,
+                         delta, editLine, lineShift, colShift);
+        tokens.replace(first, j, part.tokenStream, delta);
+        if (renumbered != null) tokens.remapSymbols(renumbered);
+
+        emittedCount = tokens.size() - 1;
+        pos          = srcLen;
+        return this;
+    }
+
+    /** Splices the comments `part` found in place of those in [from, sync) (old offsets). */
+    private void replaceComments(int from, int sync, ManualScanner part, int delta) {
+        int c0    = Arrays.binarySearch(commentStarts, 0, commentCount, from);
+        int c1    = Arrays.binarySearch(commentStarts, 0, commentCount, sync);
+        c0 = (c0 >= 0) ? c0 : -c0 - 1;
+        c1 = (c1 >= 0) ? c1 : -c1 - 1;
+        int added = part.commentCount;
+        int total = commentCount - (c1 - c0) + added;
+        if (total > commentStarts.length) {
+            commentStarts = Arrays.copyOf(commentStarts, Math.max(total, commentStarts.length * 2));
+        }
+        System.arraycopy(commentStarts, c1, commentStarts, c0 + added, commentCount - c1);
+        for (int k = c0 + added; k < total; k++) commentStarts[k] += delta;
+        System.arraycopy(part.commentStarts, 0, commentStarts, c0, added);
+        commentCount = total;
+    }
 
-        // Append sentinel
-        tokenStream.add(new Token(TokenType.END_OF_FILE, "", curLine, curCol));
+    /**
+     * Patches the identifier table for a re-lex that replaced old tokens
+     * [first, j) with `added`, which covers [from, to) of the new text.
+     * Counts change only by the identifiers of the two regions. A first
+     * occurrence after the region moves with the edit; one inside it is
+     * replaced by the name's first new occurrence or, failing that, by its
+     * next one after the region. Returns the ID map of SymbolTable.endEdit().
+     *
+     * Positions of the old text are used only where the edit left them
+     * valid: before `from`, and at or after the end of the edit (editLine,
+     * editCol), which move by lineShift (and colShift on that line).
+     */
+    private int[] patchIdentifiers(TokenBuffer added, int first, int j, int from, int to, int delta,
+                                   int editLine, int editCol, int lineShift, int colShift) {
+        TokenBuffer tokens   = tokenStream;
+        SymbolTable ids      = idTable;
+        int         fromLine = lines.lineOf(from), fromCol = lines.colOf(from);
+        int         toLine   = lines.lineOf(to),   toCol   = lines.colOf(to);
+        int         known    = ids.uniqueCount();
+        boolean[]   stale    = new boolean[known];
+        ids.beginEdit();
+
+        for (int id = 0; id < known; id++) {
+            int line = ids.firstLineOf(id), col = ids.firstColOf(id);
+            if (precedes(line, col, fromLine, fromCol)) continue;
+            if (precedes(line, col, editLine, editCol)) {
+                stale[id] = true;
+                continue;
+            }
+            if (line == editLine) col += colShift;
+            line += lineShift;
+            if (precedes(line, col, toLine, toCol)) stale[id] = true;
+            else                                    ids.editFirst(id, line, col);
+        }
+
+        for (int i = first; i < j; i++) {
+            if (tokens.category(i) == TokenType.IDENTIFIER) ids.editCount(tokens.symbol(i), -1);
+        }
+        for (int i = 0; i < added.size(); i++) {
+            if (added.category(i) != TokenType.IDENTIFIER) continue;
+            int line = added.line(i), col = added.col(i);
+            int id   = ids.editIntern(added.text(i), line, col);
+            ids.editCount(id, 1);
+            added.setSymbol(i, id);
+            if (id < known && (stale[id] || !precedes(ids.firstLineOf(id), ids.firstColOf(id), toLine, toCol))) {
+                stale[id] = false;
+                ids.editFirst(id, line, col);
+            }
+        }
+
+        // Names still in use whose first occurrence went: find the next one
+        int missing = 0;
+        for (int id = 0; id < known; id++) {
+            if (stale[id] && ids.countOf(id) > 0) missing++;
+        }
+        for (int i = j, n = tokens.size() - 1; missing > 0 && i < n; i++) {
+            int id = tokens.symbol(i);
+            if (id < 0 || !stale[id]) continue;
+            int off = tokens.offset(i) + delta;
+            ids.editFirst(id, lines.lineOf(off), lines.colOf(off));
+            stale[id] = false;
+            missing--;
+        }
+        return ids.endEdit();
+    }
+
+    private static boolean precedes(int line, int col, int otherLine, int otherCol) {
+        return line < otherLine || (line == otherLine && col < otherCol);
+    }
+
+    /**
+     * Index of the token to restart at for an edit at `offset`: the last
+     * of the first `n` tokens starting before the edit whose start is not
+     * inside a run of word characters (a lowercase error skip looks ahead
+     * over the whole run). Earlier lexemes then never looked at the edited
+     * text. Returns -1 if there is none, i.e. re-lexing starts at offset 0.
+     */
+    private int restartToken(int offset, int n) {
+        int k = Math.min(tokenStream.firstAtOrAfter(offset), n) - 1;
+        for (; k >= 0; k--) {
+            int start = tokenStream.offset(k);
+            if (start == 0) break;
+            char prev = src.charAt(start - 1);
+            if (!(isLetter(prev) || isDigit(prev) || prev == '_')) break;
+        }
+        return k;
     }
 
     // ── Token dispatch ────────────────────────────────────────────────────────
@@ -119,7 +689,7 @@ public class ManualScanner {
      * (the outer tokenise() loop will simply continue to the next position).
      */
     private Token readNextToken() {
-        char ch = src.charAt(pos);
+        char ch = at(pos);
 
         // ── Priority 1: block comment ────────────────────────────────────────
         if (ch == '#' && lookahead(1) == '*') {
@@ -137,15 +707,12 @@ public class ManualScanner {
 
         // ── Priority 4 & 5: keywords and booleans (start with lowercase) ─────
         if (isLower(ch)) {
-            if (wordAhead("true") || wordAhead("false")) {
-                return readBoolLiteral();
-            }
-            for (String kw : RESERVED_WORDS) {
-                if (wordAhead(kw)) return readKeyword();
-            }
+            TokenType word = classifyWord(pos, wordEnd(pos));
+            if (word == TokenType.BOOL_LITERAL) return readBoolLiteral();
+            if (word == TokenType.KEYWORD)      return readKeyword();
             // Lowercase that is neither keyword nor boolean → error, skip char
             // Return null so the outer loop retries (avoids deep recursion)
-            errorLog.badChar(ch, curLine, curCol);
+            errorLog.badChar(ch, currentLine(), currentCol());
             step();
             return null;
         }
@@ -159,9 +726,9 @@ public class ManualScanner {
         if (isDigit(ch) || ((ch == '+' || ch == '-') && isDigit(lookahead(1)))) {
             // Peek past optional sign and digits to see if there is a '.'
             int probe = pos;
-            if (src.charAt(probe) == '+' || src.charAt(probe) == '-') probe++;
-            while (probe < srcLen && isDigit(src.charAt(probe))) probe++;
-            if (probe < srcLen && src.charAt(probe) == '.') {
+            if (at(probe) == '+' || at(probe) == '-') probe++;
+            while (avail(probe) && isDigit(at(probe))) probe++;
+            if (avail(probe) && at(probe) == '.') {
                 return readRealLiteral();
             }
             return readIntLiteral();
@@ -184,54 +751,114 @@ public class ManualScanner {
 
         // ── Fallback: unrecognised character ──────────────────────────────────
         // Return null so the outer loop retries (avoids deep recursion)
-        errorLog.badChar(ch, curLine, curCol);
+        if (utf8 && ch >= 0x80) {
+            skipForeignChar();
+            return null;
+        }
+        errorLog.badChar(ch, currentLine(), currentCol());
         step();
         return null; // non-recursive recovery: caller retries
     }
 
+    /**
+     * Table-driven counterpart of readNextToken().
+     * Runs the TransitionTable DFA from the current position; if it stops
+     * in an accepting state the lexeme is emitted directly, otherwise the
+     * input is malformed and readNextToken() rescans it so the error log
+     * matches the DIRECT engine exactly. On windowed input comments are
+     * also left to readNextToken(), which drops their text as it reads, so
+     * a long comment does not grow the window.
+     */
+    private Token readNextTokenTable() {
+        final int start = pos;
+        int state     = TransitionTable.START;
+        int p         = pos;
+        int line      = curLine;
+        int lineStart = pos - (curCol - 1);     // offset of column 1
+
+        while (avail(p)) {
+            char ch  = at(p);
+            if (utf8 && ch >= 0x80) return readNextToken();    // readers decode UTF-8
+            int next = TransitionTable.next(state, ch);
+            if (next == TransitionTable.STOP) break;
+            state = next;
+            p++;
+            if (ch == '\n') { line++; lineStart = p; }
+
+            byte run = TransitionTable.run(state);
+            if (run == TransitionTable.RUN_NONE) continue;
+            if (window == null) {
+                p = skipRun(run, p);
+            } else if (run == TransitionTable.RUN_LINE || run == TransitionTable.RUN_BLOCK) {
+                return readNextToken();         // its comment readers release the window as they go
+            }
+        }
+
+        TokenType cat = TransitionTable.accepting(state);
+        if (cat == null) return readNextToken();
+
+        pos     = p;
+        curLine = line;
+        curCol  = p - lineStart + 1;
+        return slice(cat);
+    }
+
+    /**
+     * Skips the self-loop of a comment, text or whitespace state from `p`
+     * with FastScan. The skipped characters never include a newline.
+     */
+    private int skipRun(byte run, int p) {
+        switch (run) {
+            case TransitionTable.RUN_SPACES: return FastScan.skipSpaces(src, p, srcLen);
+            case TransitionTable.RUN_LINE:   return FastScan.skipUntil(src, p, srcLen, '\n', '\n', '\n');
+            case TransitionTable.RUN_BLOCK:  return FastScan.skipUntil(src, p, srcLen, '*', '\n', '\n');
+            case TransitionTable.RUN_TEXT:   return FastScan.skipUntil(src, p, srcLen, '"', '\\', '\n');
+            default:                         return p;
+        }
+    }
+
     // ── Token readers ─────────────────────────────────────────────────────────
+    //
+    // Readers only advance `pos`; the lexeme is the slice [tokStart, pos)
+    // of the source and is not copied unless a consumer asks for its text.
 
     /** Reads a block comment: #* ... *# */
     private Token readBlockComment() {
-        StringBuilder buf = new StringBuilder();
-        int startLine = tokLine;
-        int startCol  = tokCol;
-
-        buf.append(eat()); // #
-        buf.append(eat()); // *
+        eat(); // #
+        eat(); // *
 
         boolean closed = false;
-        while (pos < srcLen) {
-            if (src.charAt(pos) == '*' && lookahead(1) == '#') {
-                buf.append(eat()); // *
-                buf.append(eat()); // #
+        while (avail(pos)) {
+            if (at(pos) == '*' && lookahead(1) == '#') {
+                eat(); // *
+                eat(); // #
                 closed = true;
                 break;
             }
-            buf.append(eat());
+            eat();
+            skipPlain('*', '\n', '\n');
+            discardLexeme();
         }
 
         if (!closed) {
-            errorLog.unterminatedComment(startLine, startCol);
+            errorLog.unterminatedComment(tokenLine(), tokenCol());
         }
 
-        return new Token(TokenType.BLOCK_COMMENT, buf.toString(), startLine, startCol);
+        return slice(TokenType.BLOCK_COMMENT);
     }
 
     /** Reads a line comment: ## ... <newline> */
     private Token readLineComment() {
-        StringBuilder buf = new StringBuilder();
-        int startLine = tokLine;
-        int startCol  = tokCol;
+        eat(); // #
+        eat(); // #
 
-        buf.append(eat()); // #
-        buf.append(eat()); // #
-
-        while (pos < srcLen && src.charAt(pos) != '\n') {
-            buf.append(eat());
+        while (avail(pos) && at(pos) != '\n') {
+            eat();
+            skipPlain('\n', '\n', '\n');
+            discardLexeme();
         }
 
-        return new Token(TokenType.LINE_COMMENT, buf.toString(), startLine, startCol);
+        return slice(TokenType.LINE_COMMENT);
     }
 
     /**
@@ -239,55 +866,55 @@ public class ManualScanner {
      * Returns null if no two-character operator is found.
      */
     private Token tryMultiCharOp() {
-        if (pos + 1 >= srcLen) return null;
-
-        char a = src.charAt(pos);
-        char b = src.charAt(pos + 1);
-        String pair = "" + a + b;
-
-        switch (pair) {
-            case "**":
-                return consumeOp(pair, TokenType.ARITH_OP);
-            case "==": case "!=": case "<=": case ">=":
-                return consumeOp(pair, TokenType.RELATIONAL_OP);
-            case "&&": case "||":
-                return consumeOp(pair, TokenType.LOGICAL_OP);
-            case "++":
-                return consumeOp(pair, TokenType.INC_OP);
-            case "--":
-                return consumeOp(pair, TokenType.DEC_OP);
-            case "+=": case "-=": case "*=": case "/=": case "%=":
-                return consumeOp(pair, TokenType.ASSIGN_OP);
+        if (!avail(pos + 1)) return null;
+
+        char a = at(pos);
+        char b = at(pos + 1);
+
+        switch (a) {
+            case '*':
+                if (b == '*') return consumeOp(2, TokenType.ARITH_OP);
+                if (b == '=') return consumeOp(2, TokenType.ASSIGN_OP);
+                return null;
+            case '=': case '!': case '<': case '>':
+                return (b == '=') ? consumeOp(2, TokenType.RELATIONAL_OP) : null;
+            case '&': case '|':
+                return (b == a) ? consumeOp(2, TokenType.LOGICAL_OP) : null;
+            case '+':
+                if (b == '+') return consumeOp(2, TokenType.INC_OP);
+                if (b == '=') return consumeOp(2, TokenType.ASSIGN_OP);
+                return null;
+            case '-':
+                if (b == '-') return consumeOp(2, TokenType.DEC_OP);
+                if (b == '=') return consumeOp(2, TokenType.ASSIGN_OP);
+                return null;
+            case '/': case '%':
+                return (b == '=') ? consumeOp(2, TokenType.ASSIGN_OP) : null;
             default:
                 return null;
         }
     }
 
-    /** Consumes `op.length()` characters and returns a token. */
-    private Token consumeOp(String op, TokenType cat) {
-        int sl = tokLine, sc = tokCol;
-        for (int i = 0; i < op.length(); i++) eat();
-        return new Token(cat, op, sl, sc);
+    /** Consumes `length` characters and returns an operator token. */
+    private Token consumeOp(int length, TokenType cat) {
+        for (int i = 0; i < length; i++) eat();
+        return slice(cat);
     }
 
     /** Reads a boolean literal: true | false */
     private Token readBoolLiteral() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
-        while (pos < srcLen && isLetter(src.charAt(pos))) {
-            buf.append(eat());
+        while (avail(pos) && isLetter(at(pos))) {
+            eat();
         }
-        return new Token(TokenType.BOOL_LITERAL, buf.toString(), sl, sc);
+        return slice(TokenType.BOOL_LITERAL);
     }
 
     /** Reads a keyword. */
     private Token readKeyword() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
-        while (pos < srcLen && isLetter(src.charAt(pos))) {
-            buf.append(eat());
+        while (avail(pos) && isLetter(at(pos))) {
+            eat();
         }
-        return new Token(TokenType.KEYWORD, buf.toString(), sl, sc);
+        return slice(TokenType.KEYWORD);
     }
 
     /**
@@ -295,56 +922,49 @@ public class ManualScanner {
      * Also catches identifiers that are too long.
      */
     private Token readIdentifier() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
+        eat(); // first char: uppercase letter
 
-        buf.append(eat()); // first char: uppercase letter
-
-        while (pos < srcLen) {
-            char ch = src.charAt(pos);
+        while (avail(pos)) {
+            char ch = at(pos);
             if (isLower(ch) || isDigit(ch) || ch == '_') {
-                buf.append(eat());
+                eat();
             } else {
                 break;
             }
         }
 
-        String name = buf.toString();
-        if (name.length() > 31) {
-            errorLog.badIdentifier(name, sl, sc,
-                "Identifier length " + name.length() + " exceeds the 31-character limit");
+        int length = pos - tokStart;
+        if (length > 31) {
+            error(ErrorCode.IDENTIFIER_TOO_LONG, length);
         }
 
         // Identifiers that happen to spell a keyword are still keywords
-        if (RESERVED_WORDS.contains(name)) {
-            return new Token(TokenType.KEYWORD, name, sl, sc);
+        if (classifyWord(tokStart, pos) == TokenType.KEYWORD) {
+            return slice(TokenType.KEYWORD);
         }
 
-        return new Token(TokenType.IDENTIFIER, name, sl, sc);
+        return slice(TokenType.IDENTIFIER);
     }
 
     /**
      * Reads an integer literal: [+-]?[0-9]+
      */
     private Token readIntLiteral() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
-
         // Optional sign
-        char ch = src.charAt(pos);
-        if (ch == '+' || ch == '-') buf.append(eat());
+        char ch = at(pos);
+        if (ch == '+' || ch == '-') eat();
 
         // Must have at least one digit
-        if (pos >= srcLen || !isDigit(src.charAt(pos))) {
-            errorLog.badNumber(buf.toString(), sl, sc, "Digit expected after sign");
-            return new Token(TokenType.INVALID, buf.toString(), sl, sc);
+        if (!avail(pos) || !isDigit(at(pos))) {
+            error(ErrorCode.SIGN_WITHOUT_DIGIT, 0);
+            return slice(TokenType.INVALID);
         }
 
-        while (pos < srcLen && isDigit(src.charAt(pos))) {
-            buf.append(eat());
+        while (avail(pos) && isDigit(at(pos))) {
+            eat();
         }
 
-        return new Token(TokenType.INT_LITERAL, buf.toString(), sl, sc);
+        return slice(TokenType.INT_LITERAL);
     }
 
     /**
@@ -352,164 +972,161 @@ public class ManualScanner {
      *   [+-]?[0-9]+\.[0-9]{1,6}([eE][+-]?[0-9]+)?
      */
     private Token readRealLiteral() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
-
         // Optional sign
-        char ch = src.charAt(pos);
-        if (ch == '+' || ch == '-') buf.append(eat());
+        char ch = at(pos);
+        if (ch == '+' || ch == '-') eat();
 
         // Integer part
-        while (pos < srcLen && isDigit(src.charAt(pos))) {
-            buf.append(eat());
+        while (avail(pos) && isDigit(at(pos))) {
+            eat();
         }
 
         // Decimal point (mandatory for a real literal)
-        if (pos < srcLen && src.charAt(pos) == '.') {
-            buf.append(eat());
+        if (avail(pos) && at(pos) == '.') {
+            eat();
         } else {
-            errorLog.badNumber(buf.toString(), sl, sc, "Decimal point expected");
-            return new Token(TokenType.INVALID, buf.toString(), sl, sc);
+            error(ErrorCode.MISSING_DECIMAL_POINT, 0);
+            return slice(TokenType.INVALID);
         }
 
         // Fractional part: 1–6 digits required
         int fracDigits = 0;
-        while (pos < srcLen && isDigit(src.charAt(pos))) {
-            buf.append(eat());
+        while (avail(pos) && isDigit(at(pos))) {
+            eat();
             fracDigits++;
         }
 
         if (fracDigits == 0) {
-            errorLog.badNumber(buf.toString(), sl, sc,
-                "At least one digit required after the decimal point");
+            error(ErrorCode.MISSING_FRACTION, 0);
         } else if (fracDigits > 6) {
-            errorLog.badNumber(buf.toString(), sl, sc,
-                "Too many fractional digits (max 6, found " + fracDigits + ")");
+            error(ErrorCode.FRACTION_TOO_LONG, fracDigits);
         }
 
         // Optional exponent: [eE][+-]?[0-9]+
-        if (pos < srcLen && (src.charAt(pos) == 'e' || src.charAt(pos) == 'E')) {
-            buf.append(eat()); // e or E
+        if (avail(pos) && (at(pos) == 'e' || at(pos) == 'E')) {
+            eat(); // e or E
 
-            if (pos < srcLen && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) {
-                buf.append(eat());
+            if (avail(pos) && (at(pos) == '+' || at(pos) == '-')) {
+                eat();
             }
 
             int expDigits = 0;
-            while (pos < srcLen && isDigit(src.charAt(pos))) {
-                buf.append(eat());
+            while (avail(pos) && isDigit(at(pos))) {
+                eat();
                 expDigits++;
             }
 
             if (expDigits == 0) {
-                errorLog.badNumber(buf.toString(), sl, sc,
-                    "Digit(s) required after exponent marker");
+                error(ErrorCode.MISSING_EXPONENT, 0);
             }
         }
 
-        return new Token(TokenType.REAL_LITERAL, buf.toString(), sl, sc);
+        return slice(TokenType.REAL_LITERAL);
     }
 
     /**
      * Reads a text (string) literal: "([^"\\\n]|(\\["\ntr]))*"
+     *
+     * The lexeme stays a source slice unless a bad escape is dropped from
+     * it, in which case the remaining text is copied into `buf`.
      */
     private Token readTextLiteral() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
+        StringBuilder buf = null;
 
-        buf.append(eat()); // opening "
+        eat(); // opening "
         boolean closed = false;
 
-        while (pos < srcLen) {
-            char ch = src.charAt(pos);
+        while (avail(pos)) {
+            char ch = at(pos);
 
             if (ch == '\n') {
-                errorLog.unterminatedString(buf.toString(), sl, sc);
+                unterminated(ErrorCode.UNTERMINATED_STRING, buf);
                 break;
             }
 
             if (ch == '"') {
-                buf.append(eat());
+                append(buf, eat());
                 closed = true;
                 break;
             }
 
             if (ch == '\\') {
-                buf.append(eat()); // backslash
-                if (pos < srcLen) {
-                    char esc = src.charAt(pos);
+                append(buf, eat()); // backslash
+                if (avail(pos)) {
+                    char esc = at(pos);
                     if (esc == '"' || esc == '\\' || esc == 'n' || esc == 't' || esc == 'r') {
-                        buf.append(eat());
+                        append(buf, eat());
                     } else {
-                        errorLog.badEscape("\\" + esc, curLine, curCol);
-                        eat(); // skip the bad escape char
+                        buf = skipBadEscape(buf);
                     }
                 }
             } else {
-                buf.append(eat());
+                eatLiteralChar(buf);
+                if (buf == null) skipPlain('"', '\\', '\n');
             }
         }
 
         if (!closed) {
-            errorLog.unterminatedString(buf.toString(), sl, sc);
+            unterminated(ErrorCode.UNTERMINATED_STRING, buf);
         }
 
-        return new Token(TokenType.TEXT_LITERAL, buf.toString(), sl, sc);
+        return (buf == null) ? slice(TokenType.TEXT_LITERAL)
+                             : new Token(TokenType.TEXT_LITERAL, buf.toString(), tokStart,
+                                         tokenLine(), tokenCol());
     }
 
     /**
      * Reads a character literal: '([^'\\\n]|(\\['ntr]))'
+     * Like readTextLiteral(), it only copies once a bad escape is dropped.
      */
     private Token readCharLiteral() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
+        StringBuilder buf = null;
 
-        buf.append(eat()); // opening '
+        eat(); // opening '
         boolean closed = false;
         int charsSeen = 0;
 
-        while (pos < srcLen && charsSeen < 3) {
-            char ch = src.charAt(pos);
+        while (avail(pos) && charsSeen < 3) {
+            char ch = at(pos);
 
             if (ch == '\n') {
-                errorLog.unterminatedChar(buf.toString(), sl, sc);
+                unterminated(ErrorCode.UNTERMINATED_CHAR, buf);
                 break;
             }
 
             if (ch == '\'') {
-                buf.append(eat());
+                append(buf, eat());
                 closed = true;
                 break;
             }
 
             if (ch == '\\') {
-                buf.append(eat());
+                append(buf, eat());
                 charsSeen++;
-                if (pos < srcLen) {
-                    char esc = src.charAt(pos);
+                if (avail(pos)) {
+                    char esc = at(pos);
                     if (esc == '\'' || esc == '\\' || esc == 'n' || esc == 't' || esc == 'r') {
-                        buf.append(eat());
+                        append(buf, eat());
                     } else {
-                        errorLog.badEscape("\\" + esc, curLine, curCol);
-                        eat();
+                        buf = skipBadEscape(buf);
                     }
                 }
             } else {
-                buf.append(eat());
-                charsSeen++;
+                charsSeen += eatLiteralChar(buf);
             }
         }
 
         if (!closed) {
-            errorLog.unterminatedChar(buf.toString(), sl, sc);
+            unterminated(ErrorCode.UNTERMINATED_CHAR, buf);
         }
 
-        return new Token(TokenType.CHAR_LITERAL, buf.toString(), sl, sc);
+        return (buf == null) ? slice(TokenType.CHAR_LITERAL)
+                             : new Token(TokenType.CHAR_LITERAL, buf.toString(), tokStart,
+                                         tokenLine(), tokenCol());
     }
 
     /** Reads a single-character operator. */
     private Token readSingleOp() {
-        int sl = tokLine, sc = tokCol;
         char ch = eat();
         TokenType cat;
 
@@ -526,32 +1143,223 @@ public class ManualScanner {
                 cat = TokenType.INVALID;
         }
 
-        return new Token(cat, String.valueOf(ch), sl, sc);
+        return slice(cat);
     }
 
     /** Reads a single delimiter character. */
     private Token readDelimiter() {
-        int sl = tokLine, sc = tokCol;
-        char ch = eat();
-        return new Token(TokenType.DELIMITER, String.valueOf(ch), sl, sc);
+        eat();
+        return slice(TokenType.DELIMITER);
     }
 
     /** Consumes a run of whitespace characters. */
     private Token readWhitespace() {
-        StringBuilder buf = new StringBuilder();
-        int sl = tokLine, sc = tokCol;
-        while (pos < srcLen && isSpace(src.charAt(pos))) {
-            buf.append(eat());
+        while (avail(pos) && isSpace(at(pos))) {
+            eat();
+            skipSpaces();
         }
-        return new Token(TokenType.SPACE, buf.toString(), sl, sc);
+        return slice(TokenType.SPACE);
     }
 
     // ── Low-level helpers ─────────────────────────────────────────────────────
 
     /** Saves the current position as the start of the next token. */
     private void markTokenStart() {
-        tokLine = curLine;
-        tokCol  = curCol;
+        tokStart = pos;
+        tokLine  = curLine;
+        tokCol   = curCol;
+        if (window != null) window.release(pos);
+    }
+
+    /**
+     * Lets a windowed source drop the consumed part of a comment, whose
+     * text is never needed, so long comments do not grow the window.
+     */
+    private void discardLexeme() {
+        if (window != null) window.release(pos);
+    }
+
+    // Positions: the tracked counters, or the LineIndex with lazy positions
+
+    private int tokenLine()   { return lineAt(tokStart, tokLine); }
+    private int tokenCol()    { return colAt(tokStart, tokCol);   }
+    private int currentLine() { return lineAt(pos, curLine);      }
+    private int currentCol()  { return colAt(pos, curCol);        }
+
+    private int lineAt(int offset, int tracked) {
+        return (lines == null) ? tracked : lines.lineOf(offset);
+    }
+
+    private int colAt(int offset, int tracked) {
+        return (lines == null) ? tracked : lines.colOf(offset);
+    }
+
+    /**
+     * Returns a token covering the source slice [tokStart, pos).
+     * Windowed input is overwritten on refill, so its text is copied now
+     * (except for whitespace and comments, which are never emitted, and
+     * fixed lexemes such as keywords, which share their text; see Lexemes).
+     */
+    private Token slice(TokenType cat) {
+        if (window == null) {
+            return (lines != null) ? new Token(cat, src, tokStart, pos - tokStart, lines)
+                                   : new Token(cat, src, tokStart, pos - tokStart, tokLine, tokCol);
+        }
+        boolean skipped = cat == TokenType.SPACE
+                       || cat == TokenType.LINE_COMMENT || cat == TokenType.BLOCK_COMMENT;
+        if (skipped) return new Token(cat, "", tokStart, tokLine, tokCol);
+
+        int    len  = pos - tokStart;
+        String text = Lexemes.of(cat, len, window.charAt(tokStart),
+                                 (len > 1) ? window.charAt(tokStart + 1) : '\0');
+        if (text == null) text = window.substring(tokStart, pos);
+        return new Token(cat, text, tokStart, tokLine, tokCol);
+    }
+
+    /** Copies the current lexeme out of the source (error paths only). */
+    private String lexeme() {
+        return (window == null) ? src.subSequence(tokStart, pos).toString()
+                                : window.substring(tokStart, pos);
+    }
+
+    /** Returns true if there is a character at absolute offset `i`. */
+    private boolean avail(int i) {
+        return (window == null) ? i < srcLen : window.has(i);
+    }
+
+    /** Returns the character at absolute offset `i`; avail(i) must hold. */
+    private char at(int i) {
+        return (window == null) ? src.charAt(i) : window.charAt(i);
+    }
+
+    /** Classifies [from, to) as a keyword, boolean, or neither. */
+    private TokenType classifyWord(int from, int to) {
+        return (window == null) ? Keywords.classify(src, from, to)
+                                : window.classify(from, to);
+    }
+
+    /** Logs an unterminated literal with its text so far (`buf` if it dropped a bad escape). */
+    private void unterminated(ErrorCode code, StringBuilder buf) {
+        if (buf == null) error(code, 0);
+        else             errorLog.report(code, tokenLine(), tokenCol(), buf.toString(), 0, buf.length(), 0);
+    }
+
+    /**
+     * Logs `code` for the lexeme [tokStart, pos). It is kept as a source
+     * slice; only windowed input, which is overwritten on refill, copies it.
+     */
+    private void error(ErrorCode code, int arg) {
+        if (window == null) errorLog.report(code, tokenLine(), tokenCol(), src, tokStart, pos, arg);
+        else                errorLog.report(code, tokenLine(), tokenCol(), lexeme(), 0, pos - tokStart, arg);
+    }
+
+    // ── UTF-8 input ───────────────────────────────────────────────────────────
+    //
+    // On byte input every byte is one char, so ASCII needs no decoding.
+    // Multi-byte sequences are only decoded where they matter: inside text
+    // and char literals, and when reporting an unrecognised character.
+    // eat() counts columns in UTF-16 units, as the String path does.
+
+    /**
+     * Consumes one literal body character, appending it to `buf` if the
+     * literal has diverged from the source slice. A supplementary character
+     * is consumed whole: a surrogate pair on String input, a validated
+     * multi-byte sequence on byte input.
+     *
+     * @return the number of UTF-16 units consumed (2 for a supplementary
+     *         character), so char literals count length the same on both
+     */
+    private int eatLiteralChar(StringBuilder buf) {
+        if (!utf8 || at(pos) < 0x80) {
+            char ch = eat();
+            append(buf, ch);
+            if (Character.isHighSurrogate(ch) && avail(pos) && Character.isLowSurrogate(at(pos))) {
+                append(buf, eat());
+                return 2;
+            }
+            return 1;
+        }
+        int line = curLine, col = curCol, start = pos;
+        int lead = at(pos);
+        int cp   = eatUtf8();
+        if (cp < 0) {
+            errorLog.badEncoding(lead, lineAt(start, line), colAt(start, col));
+            cp = 0xFFFD;
+        }
+        if (buf != null) buf.appendCodePoint(cp);
+        return Character.charCount(cp);
+    }
+
+    /**
+     * Logs and skips the character after a backslash that is not a valid
+     * escape. The literal's text no longer matches the source from here on,
+     * so the returned builder holds a copy of it. A supplementary character
+     * is skipped whole, from a surrogate pair as from a 4-byte sequence.
+     */
+    private StringBuilder skipBadEscape(StringBuilder buf) {
+        if (buf == null) buf = new StringBuilder(lexeme());
+        int line = currentLine(), col = currentCol();
+        int cp;
+        if (utf8 && at(pos) >= 0x80) {
+            cp = eatUtf8();
+            if (cp < 0) cp = 0xFFFD;
+        } else {
+            cp = eat(); // skip the bad escape char
+            if (Character.isHighSurrogate((char) cp) && avail(pos) && Character.isLowSurrogate(at(pos))) {
+                cp = Character.toCodePoint((char) cp, eat());
+            }
+        }
+        errorLog.report(ErrorCode.BAD_ESCAPE, line, col, cp);
+        return buf;
+    }
+
+    /**
+     * Logs and skips a non-ASCII character outside a literal on byte input.
+     * It is reported like the decoded String path would report it: one
+     * error per UTF-16 unit, and U+FFFD for a malformed sequence.
+     */
+    private void skipForeignChar() {
+        int line = currentLine(), col = currentCol();
+        int cp   = eatUtf8();
+        if (cp < 0) cp = 0xFFFD;
+        char[] units = Character.toChars(cp);
+        for (int i = 0; i < units.length; i++) {
+            errorLog.badChar(units[i], line, col + i);
+        }
+    }
+
+    /**
+     * Consumes one UTF-8 encoded character starting at `pos` and returns its
+     * code point. A malformed sequence (bad lead byte, missing continuation
+     * byte, overlong form, surrogate, or beyond U+10FFFF) consumes only its
+     * first byte, counts as one column, and returns -1.
+     */
+    private int eatUtf8() {
+        int lead = at(pos);
+        int n, cp, min;
+        if      (lead >= 0xC2 && lead <= 0xDF) { n = 2; cp = lead & 0x1F; min = 0x80;    }
+        else if (lead >= 0xE0 && lead <= 0xEF) { n = 3; cp = lead & 0x0F; min = 0x800;   }
+        else if (lead >= 0xF0 && lead <= 0xF4) { n = 4; cp = lead & 0x07; min = 0x10000; }
+        else                                   { n = 0; cp = -1;          min = 0;       }
+
+        for (int i = 1; i < n && cp >= 0; i++) {
+            if (!avail(pos + i) || (at(pos + i) & 0xC0) != 0x80) cp = -1;
+            else cp = (cp << 6) | (at(pos + i) & 0x3F);
+        }
+        if (cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)) {
+            int col = curCol;
+            eat();
+            curCol = col + 1;
+            return -1;
+        }
+
+        for (int i = 0; i < n; i++) eat();
+        return cp;
+    }
+
+    /** Appends to `buf` once a literal has diverged from the source slice. */
+    private static void append(StringBuilder buf, char ch) {
+        if (buf != null) buf.append(ch);
     }
 
     /**
@@ -559,37 +1367,66 @@ public class ManualScanner {
      * and updating line/column counters.
      */
     private char eat() {
-        char ch = src.charAt(pos++);
-        if (ch == '\n') { curLine++; curCol = 1; }
-        else            { curCol++;              }
+        char ch = at(pos++);
+        if (lines != null) return ch;          // lazy positions: offsets only
+        if (ch == '\n')                { curLine++; curCol = 1; }
+        else if (!utf8 || ch < 0x80)   { curCol++;              }
+        else if (ch >= 0xC0)           { curCol += (ch >= 0xF0) ? 2 : 1; }
         return ch;
     }
 
+    /**
+     * Fast path for long runs: advances past every character up to the next
+     * a, b or c (and, on byte input, the next non-ASCII byte) without
+     * per-character bookkeeping. Callers always include '\n' in the stop
+     * set, so the run stays on one line.
+     * Windowed input keeps the per-character path.
+     */
+    private void skipPlain(char a, char b, char c) {
+        if (window != null) return;
+        int end = FastScan.skipUntil(src, pos, srcLen, a, b, c);
+        curCol += end - pos;
+        pos     = end;
+    }
+
+    /** Fast path for a run of ' ' characters (see skipPlain). */
+    private void skipSpaces() {
+        if (window != null) return;
+        int end = FastScan.skipSpaces(src, pos, srcLen);
+        curCol += end - pos;
+        pos     = end;
+    }
+
     /** Advances one character without returning it. */
     private void step() {
-        if (pos < srcLen) eat();
+        if (avail(pos)) eat();
     }
 
     /** Peeks at the character `offset` positions ahead (0 = current). */
     private char lookahead(int offset) {
         int idx = pos + offset;
-        return (idx < srcLen) ? src.charAt(idx) : '\0';
+        return avail(idx) ? at(idx) : '\0';
     }
 
     /**
-     * Returns true if the text starting at `pos` exactly matches `word`
-     * AND the character immediately after is not a letter, digit, or underscore
-     * (i.e., the word is not a prefix of a longer identifier).
+     * Returns the end of the run of letters, digits and underscores that
+     * starts at `from`. A keyword only matches when it spans the whole run
+     * (i.e., it is not a prefix of a longer identifier).
+     *
+     * At most Keywords.MAX_LENGTH + 1 characters are looked at: a longer
+     * run is no keyword either way, and the lowercase branch asks again at
+     * every character of a run it rejects, so an unbounded scan would make
+     * a long run quadratic (and grow the input window to its length).
      */
-    private boolean wordAhead(String word) {
-        int end = pos + word.length();
-        if (end > srcLen) return false;
-        if (!src.substring(pos, end).equals(word)) return false;
-        if (end < srcLen) {
-            char after = src.charAt(end);
-            if (isLetter(after) || isDigit(after) || after == '_') return false;
+    private int wordEnd(int from) {
+        int end   = from;
+        int limit = from + Keywords.MAX_LENGTH + 1;
+        while (end < limit && avail(end)) {
+            char c = at(end);
+            if (!(isLetter(c) || isDigit(c) || c == '_')) break;
+            end++;
         }
-        return true;
+        return end;
     }
 
     // ── Character classification ───────────────────────────────────────────────
@@ -614,12 +1451,18 @@ public class ManualScanner {
 
     /** Prints all non-EOF tokens in the required format. */
     public void printTokens() {
+        printTokens(tokenStream.asList().iterator());
+    }
+
+    /** Prints all non-EOF tokens produced by `tokens` (stored or streamed). */
+    private void printTokens(Iterator<Token> tokens) {
         final int W = 82;
         System.out.println("\n" + "=".repeat(W));
         System.out.println("TOKEN STREAM");
         System.out.println("=".repeat(W));
 
-        for (Token t : tokenStream) {
+        while (tokens.hasNext()) {
+            Token t = tokens.next();
             if (t.getCategory() != TokenType.END_OF_FILE) {
                 System.out.println(t);
             }
@@ -635,11 +1478,13 @@ public class ManualScanner {
         System.out.println("SCAN STATISTICS");
         System.out.println("=".repeat(W));
 
-        int emitted = tokenStream.size() - 1; // exclude EOF
-        System.out.println("  Total tokens emitted : " + emitted);
-        System.out.println("  Lines processed      : " + curLine);
+        System.out.println("  Total tokens emitted : " + emittedCount);
+        System.out.println("  Lines processed      : " + currentLine());
         System.out.println("  Comments removed     : " + commentCount);
         System.out.println("  Lexical errors       : " + errorLog.errorCount());
+        if (window != null) {
+            System.out.println("  Input window         : " + window.capacity() + " chars");
+        }
 
         System.out.println("\n  Breakdown by category:");
         System.out.println("  " + "-".repeat(40));
@@ -655,41 +1500,144 @@ public class ManualScanner {
 
     // ── Accessors ─────────────────────────────────────────────────────────────
 
-    public List<Token>    getTokens()      { return tokenStream; }
+    public List<Token>    getTokens()      { return tokenStream.asList(); }
+    public TokenBuffer    getTokenBuffer() { return tokenStream; }
     public SymbolTable   getIdTable()     { return idTable;     }
     public ErrorHandler          getErrorLog()    { return errorLog;    }
 
+    /** Size of the input window in characters, or 0 if the input is not windowed. */
+    public int getWindowCapacity() { return (window != null) ? window.capacity() : 0; }
+
+    /** Significant tokens produced so far, excluding END_OF_FILE. */
+    public int getTokenCount()   { return emittedCount;  }
+
+    /** Comments skipped so far. */
+    public int getCommentCount() { return commentCount;  }
+
+    /** Line the scanner has reached (after a full scan: the number of lines processed). */
+    public int getLineCount()    { return currentLine(); }
+
+    /**
+     * Indexes every identifier occurrence in the token stream, for
+     * find-references style queries. Call after tokenise().
+     */
+    public OccurrenceIndex buildOccurrenceIndex() {
+        return new OccurrenceIndex(tokenStream, idTable);
+    }
+
     // ── Main ──────────────────────────────────────────────────────────────────
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java Lexer <source-file.zl>");
+        Engine       engine = Engine.DIRECT;
+        boolean      stream = false;
+        boolean      mmap   = false;
+        boolean      lazy   = false;
+        boolean      par    = false;
+        boolean      types  = false;
+        boolean      runs   = false;
+        int          budget = 0;         // 0: no error limit
+        List<String> files  = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--table"))       engine = Engine.TABLE;
+            else if (arg.equals("--direct")) engine = Engine.DIRECT;
+            else if (arg.equals("--stream")) stream = true;
+            else if (arg.equals("--mmap"))   mmap   = true;
+            else if (arg.equals("--lazy"))   lazy   = true;
+            else if (arg.equals("--parallel")) par  = true;
+            else if (arg.equals("--types"))  types  = true;
+            else if (arg.equals("--collapse")) runs = true;
+            else if (arg.equals("--max-errors") && i + 1 < args.length) budget = Integer.parseInt(args[++i]);
+            else                             files.add(arg);
+        }
+
+        if (files.size() != 1) {
+            System.out.println("Usage: java ManualScanner [--direct | --table] [--stream | --mmap] [--lazy] [--parallel] [--types]"
+                             + " [--collapse] [--max-errors N] <source-file.zl>");
             return;
         }
 
-        String filename = args[0];
+        String filename = files.get(0);
 
         try {
-            String source = readFile(filename);
+            if (mmap) {
+                // Lex straight from the mapped file; no String copy is made
+                ManualScanner lexer = new ManualScanner(mapFile(filename), engine);
+                lexer.setLazyPositions(lazy);
+                limitErrors(lexer.errorLog, runs, budget);
+                report(lexer, filename, false, par, types);
+            } else if (stream) {
+                // Bounded memory: read through a window and print as we go
+                try (Reader in = new FileReader(filename)) {
+                    ManualScanner lexer = new ManualScanner(in, engine);
+                    limitErrors(lexer.errorLog, runs, budget);
+                    report(lexer, filename, true, false, false);
+                }
+            } else {
+                ManualScanner lexer = new ManualScanner(readFile(filename), engine);
+                lexer.setLazyPositions(lazy);
+                limitErrors(lexer.errorLog, runs, budget);
+                report(lexer, filename, false, par, types);
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            System.err.println("Cannot read file: " + ex.getMessage());
+        }
+    }
 
-            System.out.println("ZenLang Lexer  —  scanning: " + filename);
-            System.out.println("=".repeat(82));
+    /**
+     * Applies the --collapse and --max-errors options: a budget of N stops
+     * the scan at the N-th error, which rejects a binary file quickly.
+     */
+    static void limitErrors(ErrorHandler log, boolean collapseRuns, int maxErrors) {
+        log.setCollapseRuns(collapseRuns);
+        if (maxErrors > 0) {
+            log.setLimit(maxErrors);
+            log.setAbortOnLimit(true);
+        }
+    }
 
-            ManualScanner lexer = new ManualScanner(source);
+    /**
+     * Scans with `lexer` and prints the standard report for `filename`.
+     * With `types`, declared types are first inferred by a scoped
+     * declaration pass (see ScopedSymbolTable) so the identifier table
+     * shows them.
+     */
+    private static void report(ManualScanner lexer, String filename, boolean stream,
+                               boolean parallel, boolean types) {
+        System.out.println("ZenLang Lexer  —  scanning: " + filename);
+        System.out.println("=".repeat(82));
+
+        if (stream) {
+            lexer.printTokens(lexer.iterator());
+        } else if (parallel) {
+            lexer.tokeniseParallel();
+            lexer.printTokens();
+        } else {
             lexer.tokenise();
-
             lexer.printTokens();
-            lexer.printStats();
-            lexer.getIdTable().display();
-            lexer.getErrorLog().display();
+        }
 
-        } catch (IOException ex) {
-            System.err.println("Cannot read file: " + ex.getMessage());
+        lexer.printStats();
+        if (types && !stream) {
+            new ScopedSymbolTable(lexer.getIdTable()).declareAll(lexer.getTokenBuffer());
+        }
+        lexer.getIdTable().display();
+        lexer.getErrorLog().display();
+    }
+
+    /**
+     * Maps a whole file read-only into memory. The mapping stays valid
+     * after the channel is closed and is released when it is collected.
+     */
+    public static MappedByteBuffer mapFile(String path) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
         }
     }
 
     /** Reads an entire file into a String. */
-    private static String readFile(String path) throws IOException {
+    static String readFile(String path) throws IOException {
         StringBuilder sb = new StringBuilder();
         try (BufferedReader br = new BufferedReader(new FileReader(path))) {
             String line;
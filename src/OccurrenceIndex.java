@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * OccurrenceIndex.java
+ * Every position at which each identifier occurs, for find-references and
+ * rename, built once from a scanned token stream.
+ *
+ * Positions are grouped by symbol ID (see SymbolTable) and stored in one
+ * packed byte array. Within a symbol they are delta-encoded in source
+ * order: each occurrence is the line advance followed by the column (or,
+ * on the same line, the column advance), both as 7-bit varints. A typical
+ * occurrence takes two to four bytes, far less than the token itself
+ * takes in a TokenBuffer.
+ *
+ * Query results are flat arrays of (line, col) pairs:
+ *   { line0, col0, line1, col1, ... }
+ */
+public final class OccurrenceIndex {
+
+    private final SymbolTable ids;
+    private final byte[]      data;
+    private final int[]       starts;   // starts[id] .. starts[id + 1]: encoded positions of id
+    private final int[]       counts;
+
+    /**
+     * Indexes the identifier tokens of `tokens`, which must have been
+     * stamped with symbol IDs of `ids` (as ManualScanner does).
+     */
+    public OccurrenceIndex(TokenBuffer tokens, SymbolTable ids) {
+        int n = ids.uniqueCount();
+        this.ids    = ids;
+        this.starts = new int[n + 1];
+        this.counts = new int[n];
+
+        // Pass 1: resolve each position once and size each symbol's range
+        int[] pos  = new int[3 * 64];           // (id, line, col) per occurrence
+        int   used = 0;
+        int[] lastLine = new int[n], lastCol = new int[n];
+        for (int i = 0; i < tokens.size(); i++) {
+            int id = identifier(tokens, i);
+            if (id < 0) continue;
+            int line = tokens.line(i), col = tokens.col(i);
+            starts[id + 1] += encodedSize(line, col, lastLine[id], lastCol[id]);
+            lastLine[id] = line;
+            lastCol[id]  = col;
+
+            if (used + 3 > pos.length) pos = Arrays.copyOf(pos, pos.length * 2);
+            pos[used++] = id;
+            pos[used++] = line;
+            pos[used++] = col;
+        }
+        for (int id = 0; id < n; id++) starts[id + 1] += starts[id];
+
+        // Pass 2: encode into each symbol's range
+        this.data = new byte[starts[n]];
+        int[] at = Arrays.copyOf(starts, n);
+        Arrays.fill(lastLine, 0);
+        Arrays.fill(lastCol, 0);
+        for (int k = 0; k < used; k += 3) {
+            int id = pos[k], line = pos[k + 1], col = pos[k + 2];
+            int dl = line - lastLine[id];
+            at[id] = write(dl, at[id]);
+            at[id] = write((dl == 0) ? col - lastCol[id] : col, at[id]);
+            lastLine[id] = line;
+            lastCol[id]  = col;
+            counts[id]++;
+        }
+    }
+
+    private static int identifier(TokenBuffer tokens, int i) {
+        return (tokens.category(i) == TokenType.IDENTIFIER) ? tokens.symbol(i) : -1;
+    }
+
+    // ── Queries ───────────────────────────────────────────────────────────────
+
+    /** Number of occurrences of the symbol with the given ID. */
+    public int count(int id) {
+        return counts[id];
+    }
+
+    /** All (line, col) positions of the symbol with the given ID. */
+    public int[] positionsOf(int id) {
+        return positionsOf(id, 1, Integer.MAX_VALUE);
+    }
+
+    /** All (line, col) positions of `name`; empty if it never occurs. */
+    public int[] positionsOf(String name) {
+        int id = ids.idOf(name);
+        return (id >= 0) ? positionsOf(id) : new int[0];
+    }
+
+    /** Positions of `name` on lines fromLine..toLine (inclusive). */
+    public int[] positionsOf(String name, int fromLine, int toLine) {
+        int id = ids.idOf(name);
+        return (id >= 0) ? positionsOf(id, fromLine, toLine) : new int[0];
+    }
+
+    /** Positions of the symbol with the given ID on lines fromLine..toLine. */
+    public int[] positionsOf(int id, int fromLine, int toLine) {
+        int[] out  = new int[16];
+        int   size = 0;
+        int   line = 0, col = 0;
+        int[] cur  = { starts[id] };
+        int   end  = starts[id + 1];
+        while (cur[0] < end) {
+            int dl = read(cur);
+            int c  = read(cur);
+            line += dl;
+            col   = (dl == 0) ? col + c : c;
+            if (line > toLine) break;
+            if (line < fromLine) continue;
+            if (size == out.length) out = Arrays.copyOf(out, size * 2);
+            out[size++] = line;
+            out[size++] = col;
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /** Bytes used by the encoded positions. */
+    public int encodedBytes() {
+        return data.length;
+    }
+
+    // ── Varints ───────────────────────────────────────────────────────────────
+
+    private static int encodedSize(int line, int col, int lastLine, int lastCol) {
+        int dl = line - lastLine;
+        return varintSize(dl) + varintSize((dl == 0) ? col - lastCol : col);
+    }
+
+    private static int varintSize(int v) {
+        int n = 1;
+        while ((v >>>= 7) != 0) n++;
+        return n;
+    }
+
+    private int write(int v, int at) {
+        while ((v & ~0x7F) != 0) {
+            data[at++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        data[at++] = (byte) v;
+        return at;
+    }
+
+    /** Reads the varint at cur[0] and advances it. */
+    private int read(int[] cur) {
+        int v = 0, shift = 0, b;
+        do {
+            b = data[cur[0]++];
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return v;
+    }
+}
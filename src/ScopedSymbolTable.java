@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+/**
+ * ScopedSymbolTable.java
+ * Declarations per lexical scope, for a parser and semantic analyser.
+ *
+ * ZenLang nests scopes through its blocks: the main `start ... finish`
+ * block, function bodies, and the branches of `condition` and `loop`.
+ * Names are the symbol IDs of a scanner's SymbolTable, and every ID has
+ * its own shadow stack: top[id] is its innermost binding, and each
+ * binding links to the one it shadows. Lookup is then one array read,
+ * however deep the nesting, and leaving a scope restores exactly the
+ * names it declared.
+ *
+ * Bindings are identified by int handles and outlive their scope, so a
+ * caller may keep a handle after popScope().
+ */
+public class ScopedSymbolTable {
+
+    /** What opened a scope. */
+    public enum Kind { GLOBAL, MAIN, FUNCTION, CONDITION, LOOP }
+
+    private final SymbolTable names;
+
+    // ── Bindings (never removed) ──────────────────────────────────────────────
+
+    private int[]    bindSymbol = new int[64];
+    private int[]    bindPrev   = new int[64];     // binding shadowed by this one, or -1
+    private int[]    bindDepth  = new int[64];
+    private int[]    bindLine   = new int[64];
+    private int[]    bindCol    = new int[64];
+    private String[] bindType   = new String[64];
+    private int      bindings;
+
+    // ── Scope state ───────────────────────────────────────────────────────────
+
+    private int[]  top   = new int[64];            // innermost binding per symbol, or -1
+    private int[]  live  = new int[64];            // bindings of the open scopes, in order
+    private int    liveCount;
+    private int[]  marks = new int[16];            // liveCount when each scope opened
+    private Kind[] kinds = new Kind[16];
+    private int    depth;
+
+    /** Starts with only the GLOBAL scope open. */
+    public ScopedSymbolTable(SymbolTable names) {
+        this.names = names;
+        Arrays.fill(top, -1);
+        kinds[0] = Kind.GLOBAL;
+    }
+
+    // ── Scopes ────────────────────────────────────────────────────────────────
+
+    /** Opens a scope nested in the current one. */
+    public void pushScope(Kind kind) {
+        if (++depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+            kinds = Arrays.copyOf(kinds, depth * 2);
+        }
+        marks[depth] = liveCount;
+        kinds[depth] = kind;
+    }
+
+    /**
+     * Closes the current scope, unshadowing what its declarations hid.
+     *
+     * @throws IllegalStateException  if only the GLOBAL scope is open
+     */
+    public void popScope() {
+        if (depth == 0) throw new IllegalStateException("cannot pop the global scope");
+        while (liveCount > marks[depth]) {
+            int b = live[--liveCount];
+            top[bindSymbol[b]] = bindPrev[b];
+        }
+        depth--;
+    }
+
+    /** Nesting depth of the current scope (0 = GLOBAL). */
+    public int depth() {
+        return depth;
+    }
+
+    public Kind currentKind() {
+        return kinds[depth];
+    }
+
+    // ── Declarations ──────────────────────────────────────────────────────────
+
+    /**
+     * Declares symbol `id` in the current scope and returns the new
+     * binding, or -1 if the scope already declares it.
+     */
+    public int declare(int id, String type, int line, int col) {
+        if (id >= top.length) {
+            int old = top.length;
+            top = Arrays.copyOf(top, Math.max(id + 1, old * 2));
+            Arrays.fill(top, old, top.length, -1);
+        }
+        int prev = top[id];
+        if (prev >= 0 && bindDepth[prev] == depth) return -1;
+
+        int b = bindings++;
+        if (b == bindSymbol.length) growBindings();
+        bindSymbol[b] = id;
+        bindPrev[b]   = prev;
+        bindDepth[b]  = depth;
+        bindLine[b]   = line;
+        bindCol[b]    = col;
+        bindType[b]   = type;
+
+        if (liveCount == live.length) live = Arrays.copyOf(live, liveCount * 2);
+        live[liveCount++] = b;
+        top[id] = b;
+        return b;
+    }
+
+    private void growBindings() {
+        int n = bindSymbol.length * 2;
+        bindSymbol = Arrays.copyOf(bindSymbol, n);
+        bindPrev   = Arrays.copyOf(bindPrev, n);
+        bindDepth  = Arrays.copyOf(bindDepth, n);
+        bindLine   = Arrays.copyOf(bindLine, n);
+        bindCol    = Arrays.copyOf(bindCol, n);
+        bindType   = Arrays.copyOf(bindType, n);
+    }
+
+    /** Innermost visible binding of symbol `id`, or -1 if undeclared. */
+    public int lookup(int id) {
+        return (id >= 0 && id < top.length) ? top[id] : -1;
+    }
+
+    /** Innermost visible binding of `name`, or -1 if undeclared. */
+    public int lookup(String name) {
+        return lookup(names.idOf(name));
+    }
+
+    public int    symbolOf(int binding) { return bindSymbol[binding]; }
+    public String typeOf(int binding)   { return bindType[binding];   }
+    public int    depthOf(int binding)  { return bindDepth[binding];  }
+    public int    lineOf(int binding)   { return bindLine[binding];   }
+    public int    colOf(int binding)    { return bindCol[binding];    }
+
+    /** Total bindings declared so far, in all scopes. */
+    public int bindingCount() {
+        return bindings;
+    }
+
+    // ── Declaration pass ──────────────────────────────────────────────────────
+
+    /**
+     * Walks a token stream from the current scope, opening and closing
+     * scopes at the block keywords and declaring what the grammar
+     * declares:
+     *
+     *   start function F(A, B) ... finish   F: "function", A, B: "param"
+     *   declare X = 3                        X: "int" (type of the literal)
+     *   declare X = Y                        X: the type Y is bound to
+     *   declare X[10]                        X: "array"
+     *
+     * Any other initializer leaves the type "unknown". The first declared
+     * type of each name is also stored in the SymbolTable. Scopes left
+     * open at the end of the stream are closed.
+     */
+    public void declareAll(TokenBuffer tokens) {
+        int base = depth;
+        int n    = tokens.size();
+        for (int i = 0; i < n; i++) {
+            TokenType cat = tokens.category(i);
+            if (cat != TokenType.KEYWORD) continue;
+
+            switch (tokens.text(i)) {
+                case "start":
+                    if (isKeyword(tokens, i + 1, "function")) {
+                        i = declareFunction(tokens, i + 2);
+                    } else {
+                        pushScope(Kind.MAIN);
+                    }
+                    break;
+                case "condition":
+                    pushScope(Kind.CONDITION);
+                    break;
+                case "loop":
+                    pushScope(Kind.LOOP);
+                    break;
+                case "else":
+                    if (depth > base) popScope();
+                    pushScope(Kind.CONDITION);
+                    break;
+                case "finish":
+                    if (depth > base) popScope();
+                    break;
+                case "declare":
+                    i = declareVariable(tokens, i + 1);
+                    break;
+                default:
+                    break;
+            }
+        }
+        while (depth > base) popScope();
+    }
+
+    /** `F(A, B)` at i: declares F here and its parameters in a new scope. */
+    private int declareFunction(TokenBuffer tokens, int i) {
+        if (i < tokens.size() && tokens.category(i) == TokenType.IDENTIFIER) {
+            declareToken(tokens, i, "function");
+            i++;
+        }
+        pushScope(Kind.FUNCTION);
+        if (!isDelimiter(tokens, i, "(")) return i - 1;
+        for (i++; i < tokens.size() && !isDelimiter(tokens, i, ")"); i++) {
+            if (tokens.category(i) == TokenType.IDENTIFIER) declareToken(tokens, i, "param");
+        }
+        return i;
+    }
+
+    /** `X ([N])? (= init)?` at i. Returns the last token consumed. */
+    private int declareVariable(TokenBuffer tokens, int i) {
+        if (i >= tokens.size() || tokens.category(i) != TokenType.IDENTIFIER) return i - 1;
+        int name = i++;
+
+        String type = "unknown";
+        if (isDelimiter(tokens, i, "[")) {
+            type = "array";
+        } else if (i + 1 < tokens.size() && tokens.category(i) == TokenType.ASSIGN_OP
+                   && tokens.text(i).equals("=") && isLastOperand(tokens, i + 2)) {
+            type = typeOfOperand(tokens, i + 1);
+        }
+        declareToken(tokens, name, type);
+        return name;
+    }
+
+    /** True if no binary operator follows token i (so it is the whole expression). */
+    private static boolean isLastOperand(TokenBuffer tokens, int i) {
+        if (i >= tokens.size()) return true;
+        switch (tokens.category(i)) {
+            case ARITH_OP: case RELATIONAL_OP: case LOGICAL_OP: return false;
+            case DELIMITER: return !tokens.text(i).equals("(") && !tokens.text(i).equals("[");
+            default:        return true;
+        }
+    }
+
+    private String typeOfOperand(TokenBuffer tokens, int i) {
+        switch (tokens.category(i)) {
+            case INT_LITERAL:  return "int";
+            case REAL_LITERAL: return "real";
+            case TEXT_LITERAL: return "text";
+            case CHAR_LITERAL: return "char";
+            case BOOL_LITERAL: return "bool";
+            case IDENTIFIER:
+                int b = lookup(tokens.symbol(i));
+                return (b >= 0) ? bindType[b] : "unknown";
+            default:
+                return "unknown";
+        }
+    }
+
+    private void declareToken(TokenBuffer tokens, int i, String type) {
+        int id = tokens.symbol(i);
+        if (id < 0) return;
+        if (declare(id, type, tokens.line(i), tokens.col(i)) >= 0
+                && names.declaredTypeOf(id).equals("unknown")) {
+            names.setDeclaredType(id, type);
+        }
+    }
+
+    private static boolean isKeyword(TokenBuffer tokens, int i, String word) {
+        return i < tokens.size() && tokens.category(i) == TokenType.KEYWORD && tokens.text(i).equals(word);
+    }
+
+    private static boolean isDelimiter(TokenBuffer tokens, int i, String d) {
+        return i < tokens.size() && tokens.category(i) == TokenType.DELIMITER && tokens.text(i).equals(d);
+    }
+}
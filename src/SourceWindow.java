@@ -0,0 +1,101 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * SourceWindow.java
+ * Fixed-size, refillable character window over a Reader, used by
+ * ManualScanner when the source is not available as one String.
+ *
+ * Characters are addressed by their absolute offset in the input. The
+ * window only has to hold the characters from the start of the current
+ * lexeme onwards: on refill everything before that point is discarded
+ * and the rest is moved to the front, as Yylex.zzRefill() does. If a
+ * single lexeme outgrows the window, the window is doubled.
+ */
+final class SourceWindow {
+
+    /** Default window size, matching Yylex.ZZ_BUFFERSIZE. */
+    static final int DEFAULT_CAPACITY = 16384;
+
+    private final Reader in;
+    private char[]  buf;
+    private int     base;       // absolute offset of buf[0]
+    private int     end;        // number of valid characters in buf
+    private int     keep;       // absolute offset of the first character still needed
+    private boolean eof;
+
+    SourceWindow(Reader in, int capacity) {
+        this.in  = in;
+        this.buf = new char[Math.max(capacity, 16)];
+    }
+
+    // ── Access ────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns true if the character at absolute offset `i` exists,
+     * refilling the window as needed.
+     */
+    boolean has(int i) {
+        while (i >= base + end) {
+            if (eof || !refill()) return false;
+        }
+        return true;
+    }
+
+    /** Returns the character at absolute offset `i`; has(i) must be true. */
+    char charAt(int i) {
+        return buf[i - base];
+    }
+
+    /** Copies the characters [from, to) out of the window. */
+    String substring(int from, int to) {
+        return new String(buf, from - base, to - from);
+    }
+
+    /** Classifies [from, to) as a keyword or boolean (see Keywords). */
+    TokenType classify(int from, int to) {
+        return Keywords.classify(buf, from - base, to - base);
+    }
+
+    /** Current size of the window; it only grows for a lexeme that does not fit. */
+    int capacity() {
+        return buf.length;
+    }
+
+    /** Declares that characters before absolute offset `offset` are no longer needed. */
+    void release(int offset) {
+        keep = offset;
+    }
+
+    // ── Refill ────────────────────────────────────────────────────────────────
+
+    /**
+     * Reads more input. Returns false once the reader is exhausted.
+     * I/O failures are rethrown unchecked because the scanning methods
+     * do not declare IOException.
+     */
+    private boolean refill() {
+        int drop = keep - base;
+        if (drop > 0) {
+            System.arraycopy(buf, drop, buf, 0, end - drop);
+            end  -= drop;
+            base += drop;
+        }
+        if (end == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+
+        int n;
+        try {
+            n = in.read(buf, end, buf.length - end);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        end += n;
+        return true;
+    }
+}
@@ -9,31 +9,33 @@ import java.util.*;
  *   - a type annotation (filled in by later compiler phases)
  *   - the line and column of its first appearance
  *   - how many times it has been seen
+ *
+ * Names are interned (see Interner): entries are indexed by symbol ID,
+ * which is also the order of discovery, and identifier tokens are
+ * stamped with the ID of their name as they are recorded.
  */
 public class SymbolTable {
 
     // ── Inner record ─────────────────────────────────────────────────────────
 
     /**
-     * Holds metadata for a single identifier.
+     * Snapshot of the metadata for a single identifier.
      */
     private static class Entry {
         final String name;
-        String       declaredType;   // set during semantic analysis
+        final String declaredType;   // set during semantic analysis
         final int    firstLine;
         final int    firstCol;
-        int          occurrences;
+        final int    occurrences;
 
-        Entry(String name, int line, int col) {
+        Entry(String name, String declaredType, int line, int col, int occurrences) {
             this.name         = name;
-            this.declaredType = "unknown";
+            this.declaredType = declaredType;
             this.firstLine    = line;
             this.firstCol     = col;
-            this.occurrences  = 1;
+            this.occurrences  = occurrences;
         }
 
-        void bump() { occurrences++; }
-
         @Override
         public String toString() {
             return String.format("%-22s | %-12s | Line: %-4d Col: %-4d | Count: %d",
@@ -42,38 +44,230 @@ public class SymbolTable {
     }
 
     // ── State ─────────────────────────────────────────────────────────────────
+    //
+    // Names are keys of an open-addressed table over source slices; every
+    // other field is a primitive array indexed by symbol ID, so IDs in
+    // ascending order are the discovery order.
+
+    private Interner names = new Interner();
 
-    /** Insertion-ordered map so the table prints in discovery order. */
-    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private int[]    counts     = new int[32];
+    private int[]    firstLines = new int[32];
+    private int[]    firstCols  = new int[32];
+    private String[] types      = new String[32];  // null: "unknown"
+    private int      size;
 
     // ── Public API ────────────────────────────────────────────────────────────
 
     /**
-     * Records an identifier occurrence.
+     * Records an identifier occurrence and returns its symbol ID.
      * If the name is new it is added; otherwise its count is incremented.
      */
-    public void record(String name, int line, int col) {
-        if (entries.containsKey(name)) {
-            entries.get(name).bump();
-        } else {
-            entries.put(name, new Entry(name, line, col));
+    public int record(String name, int line, int col) {
+        int id = names.intern(name);
+        if (id < size) bump(id, 1);
+        else           add(id, line, col, 1);
+        return id;
+    }
+
+    /**
+     * Records an identifier token, stamps it with its symbol ID and
+     * returns the ID. The name is looked up straight from the source
+     * slice, and the position is only read if the name is new, so a
+     * repeat allocates nothing and a lazily placed token stays unresolved.
+     */
+    public int record(Token tok) {
+        int id = tok.internIn(names);
+        if (id < size) bump(id, 1);
+        else           add(id, tok.getLine(), tok.getCol(), 1);
+        tok.setSymbol(id);
+        return id;
+    }
+
+    /**
+     * Merges a table built from later source text: counts of known names
+     * are added, and new names are appended in the other table's order.
+     * Returns, for each of the other table's symbol IDs, the ID in this one.
+     */
+    public int[] addAll(SymbolTable later) {
+        int[] map = new int[later.size];
+        for (int k = 0; k < map.length; k++) {
+            int id = names.intern(later.names, k);
+            if (id < size) {
+                bump(id, later.counts[k]);
+            } else {
+                add(id, later.firstLines[k], later.firstCols[k], later.counts[k]);
+                types[id] = later.types[k];
+            }
+            map[k] = id;
+        }
+        return map;
+    }
+
+    /** Stores the fields of the new symbol `id` (always the next ID). */
+    private void add(int id, int line, int col, int count) {
+        size++;
+        if (id == counts.length) {
+            counts     = Arrays.copyOf(counts, id * 2);
+            firstLines = Arrays.copyOf(firstLines, id * 2);
+            firstCols  = Arrays.copyOf(firstCols, id * 2);
+            types      = Arrays.copyOf(types, id * 2);
+        }
+        counts[id]     = 0;
+        firstLines[id] = line;
+        firstCols[id]  = col;
+        if (order != null) append(id);
+        bump(id, count);
+    }
+
+    private void bump(int id, int n) {
+        int c = counts[id];
+        counts[id] = c + n;
+        if (order != null) {
+            for (int i = 0; i < n; i++) promote(id, c + i);
+        }
+    }
+
+    // ── Edits ─────────────────────────────────────────────────────────────────
+    //
+    // ManualScanner.relex() patches the table for the tokens an edit
+    // replaced instead of recording every identifier again. Between
+    // beginEdit() and endEdit() counts may drop to zero and first
+    // occurrences move; endEdit() then restores the invariant that IDs
+    // are in discovery order, renumbering only if the edit changed it.
+
+    private boolean editTracked;    // the frequency index was on at beginEdit()
+
+    /** Starts an edit; the frequency index, if kept, is rebuilt by endEdit(). */
+    void beginEdit() {
+        editTracked = (order != null);
+        order  = null;
+        ranked = 0;
+    }
+
+    /**
+     * Returns the ID of `name` for an occurrence at (line, col), adding it
+     * with no occurrences yet if new. The key is the String itself, so
+     * the table does not keep the edited source alive.
+     */
+    int editIntern(String name, int line, int col) {
+        int id = names.intern(name);
+        if (id == size) add(id, line, col, 0);
+        return id;
+    }
+
+    /** Adds `n` occurrences (negative: takes them away) of symbol `id`. */
+    void editCount(int id, int n) {
+        counts[id] += n;
+    }
+
+    /** Moves the first occurrence of symbol `id`. */
+    void editFirst(int id, int line, int col) {
+        firstLines[id] = line;
+        firstCols[id]  = col;
+    }
+
+    /**
+     * Ends an edit: names no longer seen are dropped and IDs put back in
+     * discovery order. Returns the new ID of each old one (-1 if dropped),
+     * or null if no ID changed.
+     */
+    int[] endEdit() {
+        int[] map = null;
+        for (int id = 0; id < size; id++) {
+            if (counts[id] == 0 || (id > 0 && !before(id - 1, id))) {
+                map = renumber();
+                break;
+            }
         }
+        if (editTracked) trackFrequencies();
+        return map;
+    }
+
+    /** True if the first occurrence of `a` precedes that of `b`. */
+    private boolean before(int a, int b) {
+        return firstLines[a] < firstLines[b]
+            || (firstLines[a] == firstLines[b] && firstCols[a] < firstCols[b]);
+    }
+
+    private int[] renumber() {
+        Integer[] live = new Integer[size];
+        int n = 0;
+        for (int id = 0; id < size; id++) if (counts[id] > 0) live[n++] = id;
+        Arrays.sort(live, 0, n, (a, b) -> before(a, b) ? -1 : before(b, a) ? 1 : 0);
+
+        int[] map = new int[size];
+        Arrays.fill(map, -1);
+        Interner renamed = new Interner();
+        int[]    c = new int[counts.length], fl = new int[counts.length], fc = new int[counts.length];
+        String[] t = new String[counts.length];
+        for (int k = 0; k < n; k++) {
+            int id = live[k];
+            renamed.intern(names.name(id));
+            map[id] = k;
+            c[k]  = counts[id];
+            fl[k] = firstLines[id];
+            fc[k] = firstCols[id];
+            t[k]  = types[id];
+        }
+        names      = renamed;
+        counts     = c;
+        firstLines = fl;
+        firstCols  = fc;
+        types      = t;
+        size       = n;
+        return map;
     }
 
     /** Returns true if the name has been seen at least once. */
     public boolean has(String name) {
-        return entries.containsKey(name);
+        return names.find(name) >= 0;
     }
 
     /** Returns how many times the name has appeared (0 if unknown). */
     public int countOf(String name) {
-        Entry e = entries.get(name);
-        return (e != null) ? e.occurrences : 0;
+        int id = names.find(name);
+        return (id >= 0) ? counts[id] : 0;
+    }
+
+    /** Returns the symbol ID of the name, or -1 if it has not been seen. */
+    public int idOf(String name) {
+        return names.find(name);
+    }
+
+    /** Returns the name with the given symbol ID. */
+    public String nameOf(int id) {
+        return names.name(id);
+    }
+
+    /** Occurrence count of the symbol with the given ID. */
+    public int countOf(int id)     { check(id); return counts[id];     }
+
+    /** Line of the first occurrence of the symbol with the given ID. */
+    public int firstLineOf(int id) { check(id); return firstLines[id]; }
+
+    /** Column of the first occurrence of the symbol with the given ID. */
+    public int firstColOf(int id)  { check(id); return firstCols[id];  }
+
+    /** Declared type of the symbol with the given ID ("unknown" until set). */
+    public String declaredTypeOf(int id) {
+        check(id);
+        return (types[id] != null) ? types[id] : "unknown";
+    }
+
+    /** Sets the declared type of the symbol with the given ID. */
+    public void setDeclaredType(int id, String type) {
+        check(id);
+        types[id] = type;
+    }
+
+    private void check(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("symbol " + id + " of " + size);
     }
 
     /** Returns the number of distinct identifiers recorded. */
     public int uniqueCount() {
-        return entries.size();
+        return size;
     }
 
     /**
@@ -81,12 +275,144 @@ public class SymbolTable {
      * Useful for statistics output.
      */
     public List<Map.Entry<String, Entry>> byFrequency() {
-        List<Map.Entry<String, Entry>> list = new ArrayList<>(entries.entrySet());
+        List<Map.Entry<String, Entry>> list = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            list.add(new AbstractMap.SimpleImmutableEntry<>(nameOf(id), entry(id)));
+        }
         list.sort((a, b) -> Integer.compare(b.getValue().occurrences,
                                             a.getValue().occurrences));
         return list;
     }
 
+    // ── Frequency queries ─────────────────────────────────────────────────────
+    //
+    // The optional index keeps every ID in `order`, sorted by count
+    // descending, with the IDs of equal count forming one contiguous
+    // bucket. An occurrence moves its ID to the front of its bucket, which
+    // is then the back of the next one: O(1) per occurrence.
+
+    private int[] order;            // IDs by count, descending; null if not tracked
+    private int[] rank;             // rank[id] = position of id in order
+    private int[] firstOfCount;     // first position of each count's bucket
+    private int   ranked;           // IDs in order so far
+
+    /**
+     * Starts keeping a frequency-ordered index up to date as occurrences
+     * are recorded, so topK() only looks at the top of it instead of at
+     * every entry. Costs O(1) per later occurrence.
+     */
+    public void trackFrequencies() {
+        if (order != null) return;
+        order        = new int[counts.length];
+        rank         = new int[counts.length];
+        firstOfCount = new int[16];
+        for (int id = 0; id < size; id++) {
+            append(id);
+            for (int c = 1; c < counts[id]; c++) promote(id, c);
+        }
+    }
+
+    /** Puts a new ID at the end of the index, with a count of 1. */
+    private void append(int id) {
+        if (id >= order.length) {
+            order = Arrays.copyOf(order, counts.length);
+            rank  = Arrays.copyOf(rank, counts.length);
+        }
+        int r = ranked++;
+        order[r] = id;
+        rank[id] = r;
+        if (r == 0 || counts[order[r - 1]] != 1) firstOfCount[1] = r;
+    }
+
+    /** Moves `id` from the bucket of count c to that of c + 1. */
+    private void promote(int id, int c) {
+        if (c == 0) return;                 // entering the index (see add)
+        int f     = firstOfCount[c];
+        int other = order[f];
+        int r     = rank[id];
+        order[f] = id;    rank[id]    = f;
+        order[r] = other; rank[other] = r;
+
+        firstOfCount[c] = f + 1;
+        if (c + 1 >= firstOfCount.length) {
+            firstOfCount = Arrays.copyOf(firstOfCount, Math.max(c + 2, firstOfCount.length * 2));
+        }
+        if (f == 0 || counts[order[f - 1]] != c + 1) firstOfCount[c + 1] = f;
+    }
+
+    /**
+     * Returns the `k` most frequent entries, most frequent first (ties in
+     * discovery order): the first k of byFrequency(), found with a
+     * bounded heap in O(n log k). With trackFrequencies() on, only the
+     * top of the index down to the k-th entry's count is examined.
+     */
+    public List<Map.Entry<String, Entry>> topK(int k) {
+        k = Math.min(k, size);
+        if (k <= 0) return new ArrayList<>();
+
+        int n = size;
+        if (order != null) {
+            int least = counts[order[k - 1]];
+            n = k;
+            while (n < size && counts[order[n]] == least) n++;
+        }
+
+        // Min-heap of the best k so far, worst at the root
+        int[] heap = new int[k];
+        int   used = 0;
+        for (int i = 0; i < n; i++) {
+            int id = (order != null) ? order[i] : i;
+            if (used < k) {
+                heap[used] = id;
+                siftUp(heap, used++);
+            } else if (ranksAbove(id, heap[0])) {
+                heap[0] = id;
+                siftDown(heap, k);
+            }
+        }
+
+        // Pop worst first, then reverse into best-first order
+        List<Map.Entry<String, Entry>> top = new ArrayList<>(k);
+        for (int i = k - 1; i >= 0; i--) {
+            int id = heap[0];
+            top.add(new AbstractMap.SimpleImmutableEntry<>(nameOf(id), entry(id)));
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    /** True if `a` comes before `b` in byFrequency() order. */
+    private boolean ranksAbove(int a, int b) {
+        return counts[a] > counts[b] || (counts[a] == counts[b] && a < b);
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (!ranksAbove(heap[p], heap[i])) break;
+            int t = heap[p]; heap[p] = heap[i]; heap[i] = t;
+            i = p;
+        }
+    }
+
+    private void siftDown(int[] heap, int used) {
+        int i = 0;
+        while (true) {
+            int l = 2 * i + 1, worst = i;
+            if (l < used && ranksAbove(heap[worst], heap[l]))         worst = l;
+            if (l + 1 < used && ranksAbove(heap[worst], heap[l + 1])) worst = l + 1;
+            if (worst == i) return;
+            int t = heap[worst]; heap[worst] = heap[i]; heap[i] = t;
+            i = worst;
+        }
+    }
+
+    private Entry entry(int id) {
+        return new Entry(nameOf(id), declaredTypeOf(id), firstLines[id], firstCols[id], counts[id]);
+    }
+
     /** Prints the table to standard output in a formatted layout. */
     public void display() {
         final int W = 88;
@@ -94,17 +420,17 @@ public class SymbolTable {
         System.out.println("IDENTIFIER TABLE");
         System.out.println("=".repeat(W));
 
-        if (entries.isEmpty()) {
+        if (size == 0) {
             System.out.println("  (no identifiers found)");
         } else {
             System.out.printf("%-22s | %-12s | %-18s | %s%n",
                               "Name", "Type", "First Occurrence", "Count");
             System.out.println("-".repeat(W));
-            for (Entry e : entries.values()) {
-                System.out.println("  " + e);
+            for (int id = 0; id < size; id++) {
+                System.out.println("  " + entry(id));
             }
             System.out.println("-".repeat(W));
-            System.out.println("  Unique identifiers: " + entries.size());
+            System.out.println("  Unique identifiers: " + size);
         }
         System.out.println("=".repeat(W) + "\n");
     }
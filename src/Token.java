@@ -6,13 +6,31 @@
  *   - its category  (what kind of token it is)
  *   - its text      (the exact characters from the source)
  *   - its position  (1-based line and column numbers)
+ *
+ * The text is either supplied as a String or, for zero-copy scanning, as
+ * an (offset, length) slice of the shared source buffer. A slice is only
+ * turned into a String the first time getText() is called.
+ *
+ * Operators, delimiters, keywords and booleans never materialise a slice:
+ * getText() returns the shared lexeme from Lexemes instead.
+ *
+ * A token built with a LineIndex only knows its offset; its line and
+ * column are looked up the first time either is asked for.
+ *
+ * Identifier tokens recorded in a SymbolTable also carry the symbol ID
+ * of their name (see Interner), so later phases can compare names as ints.
  */
 public class Token {
 
-    private final TokenType category;
-    private final String        text;
-    private final int           line;
-    private final int           col;
+    private final TokenType    category;
+    private       String       text;        // null until a slice is materialised
+    private final CharSequence source;      // shared source buffer, or null
+    private final int          offset;      // start of the slice in source (-1 if none)
+    private final int          length;      // length of the lexeme
+    private       int          line;        // 0 until resolved from `lines`
+    private       int          col;
+    private final LineIndex    lines;       // line-start index, or null
+    private       int          symbol = -1; // symbol ID, or -1 if not recorded
 
     /**
      * Constructs a new LexToken.
@@ -25,16 +43,121 @@ public class Token {
     public Token(TokenType category, String text, int line, int col) {
         this.category = category;
         this.text     = text;
+        this.source   = null;
+        this.offset   = -1;
+        this.length   = text.length();
+        this.line     = line;
+        this.col      = col;
+        this.lines    = null;
+    }
+
+    /**
+     * Constructs a token with already-copied text that started at the
+     * given offset of the input (used when the source is not retained).
+     *
+     * @param category  the token category
+     * @param text      the raw source text (lexeme)
+     * @param offset    index of the first character of the lexeme
+     * @param line      1-based line number where the token starts
+     * @param col       1-based column number where the token starts
+     */
+    public Token(TokenType category, String text, int offset, int line, int col) {
+        this.category = category;
+        this.text     = text;
+        this.source   = null;
+        this.offset   = offset;
+        this.length   = text.length();
+        this.line     = line;
+        this.col      = col;
+        this.lines    = null;
+    }
+
+    /**
+     * Constructs a token whose text is a slice of the source buffer.
+     * No String is created until getText() is called.
+     *
+     * @param category  the token category
+     * @param source    the shared source buffer
+     * @param offset    index of the first character of the lexeme
+     * @param length    number of characters in the lexeme
+     * @param line      1-based line number where the token starts
+     * @param col       1-based column number where the token starts
+     */
+    public Token(TokenType category, CharSequence source, int offset, int length,
+                 int line, int col) {
+        this.category = category;
+        this.text     = null;
+        this.source   = source;
+        this.offset   = offset;
+        this.length   = length;
         this.line     = line;
         this.col      = col;
+        this.lines    = null;
+    }
+
+    /**
+     * Constructs a slice token whose line and column are resolved lazily
+     * from `lines` by its offset.
+     *
+     * @param category  the token category
+     * @param source    the shared source buffer
+     * @param offset    index of the first character of the lexeme
+     * @param length    number of characters in the lexeme
+     * @param lines     line-start index of `source`
+     */
+    public Token(TokenType category, CharSequence source, int offset, int length,
+                 LineIndex lines) {
+        this.category = category;
+        this.text     = null;
+        this.source   = source;
+        this.offset   = offset;
+        this.length   = length;
+        this.lines    = lines;
     }
 
     // ── Accessors ────────────────────────────────────────────────────────────
 
     public TokenType getCategory() { return category; }
-    public String        getText()     { return text;     }
-    public int           getLine()     { return line;     }
-    public int           getCol()      { return col;      }
+    public int           getOffset()   { return offset;   }
+    public int           getLength()   { return length;   }
+    public int           getSymbol()   { return symbol;   }
+
+    void setSymbol(int id) { symbol = id; }
+
+    public int getLine() {
+        if (line == 0 && lines != null) resolve();
+        return line;
+    }
+
+    public int getCol() {
+        if (line == 0 && lines != null) resolve();
+        return col;
+    }
+
+    /** Looks up the position of a lazily placed token (line is set last). */
+    private void resolve() {
+        col  = lines.colOf(offset);
+        line = lines.lineOf(offset);
+    }
+
+    /** Returns the lexeme, materialising (and caching) a source slice if needed. */
+    public String getText() {
+        if (text == null) {
+            text = Lexemes.of(category, source, offset, length);
+            if (text == null) text = source.subSequence(offset, offset + length).toString();
+        }
+        return text;
+    }
+
+    /** Interns this token's text in `names` without materialising a slice. */
+    int internIn(Interner names) {
+        return (text != null) ? names.intern(text) : names.intern(source, offset, length);
+    }
+
+    /** Returns true if this token's text is a slice of the given buffer. */
+    public boolean isSliceOf(CharSequence buffer) {
+        return source != null && source == buffer;
+    }
 
     // ── Formatting ───────────────────────────────────────────────────────────
 
@@ -45,7 +168,7 @@ public class Token {
     @Override
     public String toString() {
         return String.format("<%s, \"%s\", Line: %d, Col: %d>",
-                             category, text, line, col);
+                             category, getText(), getLine(), getCol());
     }
 
     /**
@@ -53,6 +176,6 @@ public class Token {
      */
     public String toDebugString() {
         return String.format("Token{cat=%s, text='%s', line=%d, col=%d}",
-                             category, text, line, col);
+                             category, getText(), getLine(), getCol());
     }
 }
@@ -0,0 +1,351 @@
+import java.util.*;
+
+/**
+ * TokenBuffer.java
+ * Compact structure-of-arrays storage for a token stream.
+ *
+ * Instead of one Token object per token, each field is kept in its own
+ * primitive array:
+ *   - category ordinal  (byte)
+ *   - start offset      (int, into the shared source buffer)
+ *   - length            (int)
+ *   - line / col        (int, 1-based)
+ *   - symbol ID         (int, identifiers only; see Interner)
+ *
+ * Storage grows in fixed-size chunks, so appending never copies what has
+ * already been stored. Tokens whose text is not a plain source slice
+ * (e.g. a literal with a dropped bad escape) keep their text on the side.
+ *
+ * Given a LineIndex, the buffer stores no line/col arrays at all and
+ * resolves positions from the offsets when they are read.
+ */
+public class TokenBuffer {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;     // tokens per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final TokenType[] CATEGORIES = TokenType.values();
+
+    // ── State ─────────────────────────────────────────────────────────────────
+
+    private       CharSequence source;
+    private final LineIndex    lineIndex;   // null: positions are stored
+
+    private byte[][] cats    = new byte[0][];
+    private int[][]  offsets = new int[0][];
+    private int[][]  lengths = new int[0][];
+    private int[][]  lines   = new int[0][];
+    private int[][]  cols    = new int[0][];
+    private int[][]  symbols = new int[0][];    // symbol ID + 1, or 0
+    private int      size;
+
+    /** Text of tokens that are not source slices, keyed by index. */
+    private final Map<Integer, String> detached = new HashMap<>();
+
+    private List<Token> view;
+
+    /**
+     * @param source  buffer that the stored offsets refer to, or null if
+     *                the source is not retained (all texts are then kept)
+     */
+    public TokenBuffer(CharSequence source) {
+        this(source, null);
+    }
+
+    /**
+     * @param source     buffer that the stored offsets refer to
+     * @param lineIndex  line-start index of `source`, or null to store
+     *                   each token's line and column
+     */
+    public TokenBuffer(CharSequence source, LineIndex lineIndex) {
+        this.source    = source;
+        this.lineIndex = lineIndex;
+    }
+
+    // ── Appending ─────────────────────────────────────────────────────────────
+
+    /** Appends a token given as a slice of the source. */
+    public void add(TokenType cat, int offset, int length, int line, int col) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == cats.length) grow();
+        int i = size & CHUNK_MASK;
+        cats[chunk][i]    = (byte) cat.ordinal();
+        offsets[chunk][i] = offset;
+        lengths[chunk][i] = length;
+        if (lineIndex == null) {
+            lines[chunk][i] = line;
+            cols[chunk][i]  = col;
+        }
+        size++;
+    }
+
+    /** Appends an existing token, keeping its text if it is not a slice. */
+    public void add(Token tok) {
+        if (!tok.isSliceOf(source)) detached.put(size, tok.getText());
+        if (lineIndex != null) {
+            add(tok.getCategory(), tok.getOffset(), tok.getLength(), 0, 0);    // resolved on read
+        } else {
+            add(tok.getCategory(), tok.getOffset(), tok.getLength(), tok.getLine(), tok.getCol());
+        }
+        if (tok.getSymbol() >= 0) setSymbol(size - 1, tok.getSymbol());
+    }
+
+    /**
+     * Appends tokens [from, other.size()) of another buffer over the same
+     * source, translating their symbol IDs through `symbolMap` (indexed
+     * by the other buffer's IDs, as returned by SymbolTable.addAll).
+     */
+    public void addAll(TokenBuffer other, int from, int[] symbolMap) {
+        int start = size;
+        addAll(other, from, other.size, 0);
+        for (int i = start; i < size; i++) {
+            int id = symbol(i);
+            if (id >= 0) setSymbol(i, symbolMap[id]);
+        }
+    }
+
+    /**
+     * Appends tokens [from, to) of another buffer with their offsets moved
+     * by `shift` (non-zero after an edit). Lines and columns are only
+     * copied into a buffer without a LineIndex, so `shift` must be 0 then.
+     */
+    public void addAll(TokenBuffer other, int from, int to, int shift) {
+        if (shift != 0 && lineIndex == null) {
+            throw new IllegalArgumentException("shifted tokens need a LineIndex to be placed");
+        }
+        for (int i = from; i < to; i++) {
+            String t = other.detached.get(i);
+            if (t != null) detached.put(size, t);
+            if (lineIndex != null) {
+                add(other.category(i), other.offset(i) + shift, other.length(i), 0, 0);
+            } else {
+                add(other.category(i), other.offset(i), other.length(i), other.line(i), other.col(i));
+            }
+            symbols[(size - 1) >>> CHUNK_BITS][(size - 1) & CHUNK_MASK] = other.symbol(i) + 1;
+        }
+    }
+
+    /** Sets the symbol ID of token i (an identifier). */
+    public void setSymbol(int i, int id) {
+        check(i);
+        symbols[i >>> CHUNK_BITS][i & CHUNK_MASK] = id + 1;
+    }
+
+    // ── Edits ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Replaces tokens [from, to) with the tokens of `with`, a buffer over
+     * the edited source with the same LineIndex, and moves the offsets of
+     * the tokens after them by `shift`. This buffer then refers to the
+     * edited source. Only the tokens after the edit are moved, a chunk at
+     * a time; nothing before it is touched.
+     */
+    public void replace(int from, int to, TokenBuffer with, int shift) {
+        if (lineIndex == null || with.lineIndex != lineIndex) {
+            throw new IllegalArgumentException("replaced tokens need the shared LineIndex to be placed");
+        }
+        int n       = with.size;
+        int tail    = size - to;
+        int newSize = from + n + tail;
+        while (newSize > cats.length * CHUNK_SIZE) grow();
+
+        move(to, from + n, tail);
+        if (shift != 0) {
+            for (int i = from + n; i < newSize; ) {
+                int[] chunk = offsets[i >>> CHUNK_BITS];
+                int   end   = Math.min(CHUNK_SIZE, (i & CHUNK_MASK) + newSize - i);
+                for (int k = i & CHUNK_MASK; k < end; k++) chunk[k] += shift;
+                i += end - (i & CHUNK_MASK);
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            int i = from + k, c = i >>> CHUNK_BITS, j = i & CHUNK_MASK;
+            cats[c][j]    = (byte) with.category(k).ordinal();
+            offsets[c][j] = with.offset(k);
+            lengths[c][j] = with.length(k);
+            symbols[c][j] = with.symbol(k) + 1;
+        }
+
+        if (!detached.isEmpty() || !with.detached.isEmpty()) {
+            Map<Integer, String> kept = new HashMap<>();
+            detached.forEach((i, t) -> {
+                if (i < from)     kept.put(i, t);
+                else if (i >= to) kept.put(i - to + from + n, t);
+            });
+            with.detached.forEach((i, t) -> kept.put(from + i, t));
+            detached.clear();
+            detached.putAll(kept);
+        }
+        size   = newSize;
+        source = with.source;
+    }
+
+    /** Moves tokens [src, src + n) to [dst, dst + n), which may overlap. */
+    private void move(int src, int dst, int n) {
+        if (n == 0 || src == dst) return;
+        boolean down = dst < src;
+        int done = 0;
+        while (done < n) {
+            // copy the longest run that stays within one chunk on both sides
+            int k = down ? done : n - done;
+            int s = down ? src + k : src + k - 1;
+            int d = down ? dst + k : dst + k - 1;
+            int room = down ? Math.min(CHUNK_SIZE - (s & CHUNK_MASK), CHUNK_SIZE - (d & CHUNK_MASK))
+                            : Math.min((s & CHUNK_MASK) + 1, (d & CHUNK_MASK) + 1);
+            int len  = Math.min(room, n - done);
+            int s0   = down ? s : s - len + 1;
+            int d0   = down ? d : d - len + 1;
+            copy(cats,    s0, d0, len);
+            copy(offsets, s0, d0, len);
+            copy(lengths, s0, d0, len);
+            copy(symbols, s0, d0, len);
+            done += len;
+        }
+    }
+
+    private static void copy(Object[] chunks, int src, int dst, int len) {
+        System.arraycopy(chunks[src >>> CHUNK_BITS], src & CHUNK_MASK,
+                         chunks[dst >>> CHUNK_BITS], dst & CHUNK_MASK, len);
+    }
+
+    /**
+     * Renumbers the symbol IDs of every identifier: `map` is indexed by
+     * the old IDs (see SymbolTable.endEdit).
+     */
+    public void remapSymbols(int[] map) {
+        for (int c = 0; c * CHUNK_SIZE < size; c++) {
+            int[] chunk = symbols[c];
+            int   end   = Math.min(CHUNK_SIZE, size - c * CHUNK_SIZE);
+            for (int k = 0; k < end; k++) {
+                if (chunk[k] != 0) chunk[k] = map[chunk[k] - 1] + 1;
+            }
+        }
+    }
+
+    private void grow() {
+        int n = cats.length + 1;
+        cats    = Arrays.copyOf(cats, n);
+        offsets = Arrays.copyOf(offsets, n);
+        lengths = Arrays.copyOf(lengths, n);
+        symbols = Arrays.copyOf(symbols, n);
+        cats[n - 1]    = new byte[CHUNK_SIZE];
+        offsets[n - 1] = new int[CHUNK_SIZE];
+        lengths[n - 1] = new int[CHUNK_SIZE];
+        symbols[n - 1] = new int[CHUNK_SIZE];
+        if (lineIndex == null) {
+            lines = Arrays.copyOf(lines, n);
+            cols  = Arrays.copyOf(cols, n);
+            lines[n - 1] = new int[CHUNK_SIZE];
+            cols[n - 1]  = new int[CHUNK_SIZE];
+        }
+    }
+
+    // ── Random access ─────────────────────────────────────────────────────────
+
+    public int size() { return size; }
+
+    public TokenType category(int i) { check(i); return CATEGORIES[cats[i >>> CHUNK_BITS][i & CHUNK_MASK]]; }
+    public int       offset(int i)   { check(i); return offsets[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    public int       length(int i)   { check(i); return lengths[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    public int       symbol(int i)   { check(i); return symbols[i >>> CHUNK_BITS][i & CHUNK_MASK] - 1; }
+    public int line(int i) {
+        if (lineIndex != null) return lineIndex.lineOf(offset(i));
+        check(i);
+        return lines[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public int col(int i) {
+        if (lineIndex != null) return lineIndex.colOf(offset(i));
+        check(i);
+        return cols[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    /**
+     * Index of the first token starting at or after `offset` (size() if
+     * none); tokens are stored in source order.
+     */
+    public int firstAtOrAfter(int offset) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (offsets[mid >>> CHUNK_BITS][mid & CHUNK_MASK] < offset) lo = mid + 1;
+            else                                                        hi = mid;
+        }
+        return lo;
+    }
+
+    /** Returns the text of token i (allocates a String). */
+    public String text(int i) {
+        String t = detached.get(i);
+        if (t != null) return t;
+        int off = offset(i);
+        String fixed = Lexemes.of(category(i), source, off, length(i));
+        return (fixed != null) ? fixed : source.subSequence(off, off + length(i)).toString();
+    }
+
+    /** Materialises token i as a Token object. */
+    public Token get(int i) {
+        String t = detached.get(i);
+        Token tok;
+        if (t != null)               tok = new Token(category(i), t, line(i), col(i));
+        else if (lineIndex != null)  tok = new Token(category(i), source, offset(i), length(i), lineIndex);
+        else                         tok = new Token(category(i), source, offset(i), length(i), line(i), col(i));
+        tok.setSymbol(symbol(i));
+        return tok;
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("token " + i + " of " + size);
+    }
+
+    // ── Iteration ─────────────────────────────────────────────────────────────
+
+    /** Returns a cursor positioned before the first token. */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Forward cursor over the buffer; reads fields in place without
+     * creating Token objects.
+     *
+     *   TokenBuffer.Cursor c = buf.cursor();
+     *   while (c.next()) { ... c.category() ... c.line() ... }
+     */
+    public class Cursor {
+        private int index = -1;
+
+        /** Advances to the next token; returns false once past the end. */
+        public boolean next() {
+            if (index < size) index++;
+            return index < size;
+        }
+
+        public int       index()    { return index; }
+        public TokenType category() { return TokenBuffer.this.category(index); }
+        public int       offset()   { return TokenBuffer.this.offset(index);   }
+        public int       length()   { return TokenBuffer.this.length(index);   }
+        public int       line()     { return TokenBuffer.this.line(index);     }
+        public int       col()      { return TokenBuffer.this.col(index);      }
+        public int       symbol()   { return TokenBuffer.this.symbol(index);   }
+        public String    text()     { return TokenBuffer.this.text(index);     }
+        public Token     token()    { return TokenBuffer.this.get(index);      }
+    }
+
+    /**
+     * Returns a read-only List view; each get() materialises a new Token,
+     * so callers that only need fields should prefer cursor().
+     */
+    public List<Token> asList() {
+        if (view == null) {
+            view = new View();
+        }
+        return view;
+    }
+
+    private class View extends AbstractList<Token> implements RandomAccess {
+        @Override public Token get(int i) { return TokenBuffer.this.get(i); }
+        @Override public int   size()     { return size; }
+    }
+}
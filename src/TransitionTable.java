@@ -0,0 +1,306 @@
+import java.util.*;
+
+/**
+ * TransitionTable.java
+ * Precomputed character-class and transition tables for the table-driven
+ * ZenLang scanning engine (see ManualScanner.Engine.TABLE).
+ *
+ * The DFA is assembled once from the token rules, then its 129 input
+ * columns (ASCII plus one column for every non-ASCII character) are
+ * collapsed into equivalence classes so the transition table stays small.
+ *
+ * Scanning contract:
+ *   - run from START, following next(state, ch) until it returns STOP
+ *   - if the final state has an accepting category, that is the token
+ *   - otherwise the input is malformed and the caller must rescan it with
+ *     the hand-written readers, which produce the exact error records
+ */
+final class TransitionTable {
+
+    /** Returned by next() when the current state has no move on the input. */
+    static final int STOP  = -1;
+
+    /** Initial state of every token. */
+    static final int START = 0;
+
+    /** Run kinds: states whose self-loop can be skipped with FastScan. */
+    static final byte RUN_NONE   = 0;
+    static final byte RUN_SPACES = 1;   // whitespace
+    static final byte RUN_LINE   = 2;   // line comment body, stops at '\n'
+    static final byte RUN_BLOCK  = 3;   // block comment body, stops at '*' '\n'
+    static final byte RUN_TEXT   = 4;   // text literal body, stops at '"' '\\' '\n'
+
+    /** Column used for every character outside the ASCII range. */
+    private static final int NON_ASCII = 128;
+
+    // ── Tables ────────────────────────────────────────────────────────────────
+
+    private static final byte[]      CHAR_CLASS;    // column  -> class
+    private static final int         CLASS_COUNT;
+    private static final int[]       NEXT;          // state * CLASS_COUNT + class -> state
+    private static final TokenType[] ACCEPT;        // state -> category (null = not accepting)
+    private static final byte[]      RUN;           // state -> run kind
+
+    static {
+        Builder b = new Builder();
+        b.build();
+
+        // Collapse identical columns into character classes
+        Map<String, Integer> seen = new HashMap<>();
+        CHAR_CLASS = new byte[NON_ASCII + 1];
+        List<Integer> reps = new ArrayList<>();
+        for (int c = 0; c <= NON_ASCII; c++) {
+            StringBuilder key = new StringBuilder();
+            for (int[] row : b.rows) key.append(row[c]).append(',');
+            Integer cls = seen.get(key.toString());
+            if (cls == null) {
+                cls = reps.size();
+                seen.put(key.toString(), cls);
+                reps.add(c);
+            }
+            CHAR_CLASS[c] = (byte) (int) cls;
+        }
+
+        CLASS_COUNT = reps.size();
+        NEXT   = new int[b.rows.size() * CLASS_COUNT];
+        ACCEPT = b.accept.toArray(new TokenType[0]);
+        RUN    = new byte[ACCEPT.length];
+        for (Map.Entry<Integer, Byte> e : b.runs.entrySet()) RUN[e.getKey()] = e.getValue();
+        for (int s = 0; s < b.rows.size(); s++) {
+            for (int cls = 0; cls < CLASS_COUNT; cls++) {
+                NEXT[s * CLASS_COUNT + cls] = b.rows.get(s)[reps.get(cls)];
+            }
+        }
+    }
+
+    private TransitionTable() {}
+
+    // ── Lookup ────────────────────────────────────────────────────────────────
+
+    /** Returns the state reached from `state` on `ch`, or STOP. */
+    static int next(int state, char ch) {
+        int cls = CHAR_CLASS[ch < NON_ASCII ? ch : NON_ASCII];
+        return NEXT[state * CLASS_COUNT + cls];
+    }
+
+    /** Returns the category accepted in `state`, or null if it is not accepting. */
+    static TokenType accepting(int state) {
+        return ACCEPT[state];
+    }
+
+    /** Returns the run kind of `state` (RUN_NONE for most states). */
+    static byte run(int state) {
+        return RUN[state];
+    }
+
+    /** Number of DFA states (for diagnostics). */
+    static int stateCount()  { return ACCEPT.length; }
+
+    /** Number of character classes after column compression. */
+    static int classCount()  { return CLASS_COUNT;   }
+
+    // ── Construction ──────────────────────────────────────────────────────────
+
+    /**
+     * Builds the uncompressed DFA, one 129-wide row per state.
+     * The rules mirror the priority order documented in ManualScanner.
+     */
+    private static class Builder {
+        final List<int[]>     rows   = new ArrayList<>();
+        final List<TokenType> accept = new ArrayList<>();
+        final Map<Integer, Byte> runs = new HashMap<>();
+
+        int state(TokenType cat) {
+            int[] row = new int[NON_ASCII + 1];
+            Arrays.fill(row, STOP);
+            rows.add(row);
+            accept.add(cat);
+            return rows.size() - 1;
+        }
+
+        void on(int from, String chars, int to) {
+            for (int i = 0; i < chars.length(); i++) rows.get(from)[chars.charAt(i)] = to;
+        }
+
+        void onRange(int from, char lo, char hi, int to) {
+            for (char c = lo; c <= hi; c++) rows.get(from)[c] = to;
+        }
+
+        void onAny(int from, int to) {
+            Arrays.fill(rows.get(from), to);
+        }
+
+        void build() {
+            final int start = state(null);          // must be state 0 (START)
+            final int dead  = state(null);          // forces a rescan by the readers
+
+            // Whitespace
+            int ws = state(TokenType.SPACE);
+            on(start, " \t\r\n", ws);
+            on(ws,    " \t\r\n", ws);
+            runs.put(ws, RUN_SPACES);
+
+            // Delimiters
+            on(start, "(){}[],;:", state(TokenType.DELIMITER));
+
+            // Comments: #* ... *#  and  ## ...
+            int hash = state(null);
+            on(start, "#", hash);
+
+            int line = state(TokenType.LINE_COMMENT);
+            on(hash, "#", line);
+            onAny(line, line);
+            on(line, "\n", STOP);
+            runs.put(line, RUN_LINE);
+
+            int block     = state(null);
+            int blockStar = state(null);
+            on(hash, "*", block);
+            onAny(block, block);
+            on(block, "*", blockStar);
+            onAny(blockStar, block);
+            on(blockStar, "*", blockStar);
+            on(blockStar, "#", state(TokenType.BLOCK_COMMENT));
+            runs.put(block, RUN_BLOCK);
+
+            // Operators
+            int arith2  = state(TokenType.ARITH_OP);
+            int rel2    = state(TokenType.RELATIONAL_OP);
+            int logic2  = state(TokenType.LOGICAL_OP);
+            int assign2 = state(TokenType.ASSIGN_OP);
+
+            int star = state(TokenType.ARITH_OP);
+            on(start, "*", star);
+            on(star, "*", arith2);
+            on(star, "=", assign2);
+
+            int slashOrMod = state(TokenType.ARITH_OP);
+            on(start, "/%", slashOrMod);
+            on(slashOrMod, "=", assign2);
+
+            int eq = state(TokenType.ASSIGN_OP);
+            on(start, "=", eq);
+            on(eq, "=", rel2);
+
+            int bang = state(TokenType.LOGICAL_OP);
+            on(start, "!", bang);
+            on(bang, "=", rel2);
+
+            int less = state(TokenType.RELATIONAL_OP);
+            on(start, "<>", less);
+            on(less, "=", rel2);
+
+            int amp = state(TokenType.INVALID);
+            on(start, "&", amp);
+            on(amp, "&", logic2);
+
+            int bar = state(TokenType.INVALID);
+            on(start, "|", bar);
+            on(bar, "|", logic2);
+
+            // Numbers: [+-]?[0-9]+ ( \.[0-9]{1,6} ([eE][+-]?[0-9]+)? )?
+            int intLit = state(TokenType.INT_LITERAL);
+            onRange(start,  '0', '9', intLit);
+            onRange(intLit, '0', '9', intLit);
+
+            int plus = state(TokenType.ARITH_OP);
+            on(start, "+", plus);
+            on(plus, "+", state(TokenType.INC_OP));
+            on(plus, "=", assign2);
+            onRange(plus, '0', '9', intLit);
+
+            int minus = state(TokenType.ARITH_OP);
+            on(start, "-", minus);
+            on(minus, "-", state(TokenType.DEC_OP));
+            on(minus, "=", assign2);
+            onRange(minus, '0', '9', intLit);
+
+            int dot = state(null);
+            on(intLit, ".", dot);
+
+            int expMark = state(null);
+            int expSign = state(null);
+            int expDigs = state(TokenType.REAL_LITERAL);
+            on(expMark, "+-", expSign);
+            onRange(expMark, '0', '9', expDigs);
+            onRange(expSign, '0', '9', expDigs);
+            onRange(expDigs, '0', '9', expDigs);
+
+            int prev = dot;
+            for (int k = 1; k <= 6; k++) {
+                int frac = state(TokenType.REAL_LITERAL);
+                onRange(prev, '0', '9', frac);
+                on(frac, "eE", expMark);
+                prev = frac;
+            }
+            onRange(prev, '0', '9', dead);          // 7th fractional digit
+
+            // Identifiers: [A-Z][a-z0-9_]{0,30}
+            prev = start;
+            for (int k = 1; k <= 31; k++) {
+                int id = state(TokenType.IDENTIFIER);
+                if (k == 1) onRange(prev, 'A', 'Z', id);
+                else        idChars(prev, id);
+                prev = id;
+            }
+            idChars(prev, dead);                    // 32nd character
+
+            // Keywords and booleans as a trie; a word character after a
+            // complete word means it was only a prefix of something longer
+            for (String kw : Keywords.RESERVED) word(start, kw, TokenType.KEYWORD, dead);
+            for (String bw : Keywords.BOOLEANS) word(start, bw, TokenType.BOOL_LITERAL, dead);
+
+            // Text literals: "([^"\\\n]|\\["\\ntr])*"
+            int str    = state(null);
+            int strEsc = state(null);
+            on(start, "\"", str);
+            onAny(str, str);
+            on(str, "\n", STOP);
+            on(str, "\\", strEsc);
+            on(str, "\"", state(TokenType.TEXT_LITERAL));
+            on(strEsc, "\"\\ntr", str);
+            runs.put(str, RUN_TEXT);
+
+            // Char literals: the readers allow up to three characters before
+            // giving up, so the body is unrolled by characters seen
+            int charEnd = state(TokenType.CHAR_LITERAL);
+            int[] body  = new int[4];
+            int[] esc   = new int[4];
+            for (int k = 0; k <= 3; k++) body[k] = state(null);
+            for (int k = 1; k <= 3; k++) esc[k]  = state(null);
+            on(start, "'", body[0]);
+            for (int k = 0; k < 3; k++) {
+                onAny(body[k], body[k + 1]);
+                on(body[k], "\n", STOP);
+                on(body[k], "\\", esc[k + 1]);
+                on(body[k], "'", charEnd);
+                on(esc[k + 1], "'\\ntr", body[k + 1]);
+            }
+        }
+
+        private void idChars(int from, int to) {
+            onRange(from, 'a', 'z', to);
+            onRange(from, '0', '9', to);
+            on(from, "_", to);
+        }
+
+        private void word(int start, String w, TokenType cat, int dead) {
+            int s = start;
+            for (int i = 0; i < w.length(); i++) {
+                int t = rows.get(s)[w.charAt(i)];
+                if (t == STOP) {
+                    t = state(null);
+                    rows.get(s)[w.charAt(i)] = t;
+                }
+                s = t;
+            }
+            accept.set(s, cat);
+            int[] row = rows.get(s);
+            for (char c = 0; c < NON_ASCII; c++) {
+                boolean wordChar = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                                || (c >= '0' && c <= '9') || c == '_';
+                if (wordChar && row[c] == STOP) row[c] = dead;
+            }
+        }
+    }
+}
@@ -5,7 +5,7 @@
  * <a href="http://www.jflex.de/">JFlex</a> 1.7.0
  * from the specification file <tt>Scanner.flex</tt>
  */
-public class Yylex {
+public class Yylex implements Lexer {
 
   /** This character denotes the end of file */
   public static final int YYEOF = -1;
@@ -310,6 +310,256 @@ public class Yylex {
   /* user code: */
     /* No extra imports needed — Token and TokenType are in the same package */
 
+    /* Lexical errors; set a DiagnosticSink on it to see them as they are found */
+    private final ErrorHandler errorLog = new ErrorHandler();
+
+    /* Identifiers, recorded as ManualScanner records them */
+    private final SymbolTable idTable = new SymbolTable();
+
+    public ErrorHandler getErrorLog() { return errorLog; }
+    public SymbolTable  getIdTable()  { return idTable;  }
+
+    /* ─── Lexer interface ───────────────────────────────────────────────────
+     * yylex() returns null at the end of input, as a plain JFlex scanner
+     * does, and also after an unterminated comment or once the error log
+     * asks to abort (see aborted()). nextToken() ends with an END_OF_FILE
+     * sentinel instead, as ManualScanner does.
+     */
+    private boolean eofReturned;
+
+    public Token nextToken() {
+        if (eofReturned) return null;
+        try {
+            while (!zzAtEOF && !errorLog.shouldAbort()) {
+                Token tok = yylex();
+                if (tok != null) return tok;
+            }
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        eofReturned = true;
+        errorLog.flush();
+        return new Token(TokenType.END_OF_FILE, "", lineAt(yylength()), colAt(yylength()));
+    }
+
+    public boolean hasNext() {
+        return !eofReturned;
+    }
+
+    /* An action that reports an error and returns no token checks this:
+       ManualScanner stops right after the lexeme that reaches the limit */
+    private boolean aborted() {
+        return errorLog.shouldAbort();
+    }
+
+    /* Token with the shared text of a fixed-lexeme category (see Lexemes) */
+    private Token fixed(TokenType cat) {
+        int n = yylength();
+        return new Token(cat, Lexemes.of(cat, n, yycharat(0), (n > 1) ? yycharat(1) : '\0'),
+                         yyline+1, yycolumn+1);
+    }
+
+    /* ─── Error recovery ─────────────────────────────────────────────────────
+     * The rules only match well-formed lexemes. Where ManualScanner reads on
+     * through a malformed one (an unterminated literal, a bad escape, an
+     * over-long identifier, a number with a bad fraction or exponent), the
+     * action continues the match by hand with peek() and take(), so both
+     * engines produce the same tokens and the same ErrorHandler records.
+     */
+
+    /* Character `k` places past the match, or -1 at the end of input. It may
+       read more input into the buffer, which the loop in yylex() only sees
+       on its next call: an action that peeks must return. */
+    private int peek(int k) throws java.io.IOException {
+        while (zzMarkedPos + k >= zzEndRead) {
+            zzEndRead += zzFinalHighSurrogate;
+            zzFinalHighSurrogate = 0;
+            if (zzEndRead == zzBuffer.length) {
+                zzBuffer = java.util.Arrays.copyOf(zzBuffer, zzBuffer.length * 2);
+            }
+            int requested = zzBuffer.length - zzEndRead;
+            int numRead   = zzReader.read(zzBuffer, zzEndRead, requested);
+            if (numRead < 0)  return -1;
+            if (numRead == 0) throw new java.io.IOException("Reader returned 0 characters");
+            zzEndRead += numRead;
+            if (numRead == requested && Character.isHighSurrogate(zzBuffer[zzEndRead - 1])) {
+                --zzEndRead;                    /* as zzRefill(): keep a pair together */
+                zzFinalHighSurrogate = 1;
+            }
+        }
+        return zzBuffer[zzMarkedPos + k];
+    }
+
+    /* The character after the match, or -1 at the end of input, for an
+       action that may scan on without returning: the buffer is left as it
+       is and a character read ahead goes back to the reader */
+    private int lookahead() throws java.io.IOException {
+        if (zzMarkedPos < zzEndRead + zzFinalHighSurrogate) return zzBuffer[zzMarkedPos];
+        if (!(zzReader instanceof java.io.PushbackReader)) {
+            zzReader = new java.io.PushbackReader(zzReader);
+        }
+        java.io.PushbackReader in = (java.io.PushbackReader) zzReader;
+        int c = in.read();
+        if (c >= 0) in.unread(c);
+        return c;
+    }
+
+    /* Adds the next character to the match */
+    private void take() {
+        zzMarkedPos++;
+    }
+
+    private static boolean isLower(int c)  { return c >= 'a' && c <= 'z'; }
+    private static boolean isLetter(int c) { return isLower(c) || (c >= 'A' && c <= 'Z'); }
+    private static boolean isDigit(int c)  { return c >= '0' && c <= '9'; }
+
+    /* Line and column of match offset k (lines end at '\n', as in ManualScanner) */
+    private int lineAt(int k) {
+        int line = yyline+1;
+        for (int i = 0; i < k; i++) if (yycharat(i) == '\n') line++;
+        return line;
+    }
+
+    private int colAt(int k) {
+        int col = yycolumn+1;
+        for (int i = 0; i < k; i++) col = (yycharat(i) == '\n') ? 1 : col + 1;
+        return col;
+    }
+
+    /* Logs `code` for the whole match */
+    private void error(ErrorCode code, int arg) {
+        errorLog.report(code, yyline+1, yycolumn+1, yytext(), 0, yylength(), arg);
+    }
+
+    /* A keyword or boolean counts only as a whole word (see ManualScanner.wordEnd);
+       otherwise its first letter is reported and the rest scanned again */
+    private boolean wholeWord() throws java.io.IOException {
+        int c = lookahead();
+        if (!isLetter(c) && !isDigit(c) && c != '_') return true;
+        errorLog.badChar(yycharat(0), yyline+1, yycolumn+1);
+        yypushback(yylength() - 1);
+        return false;
+    }
+
+    /* The rule stops at 31 characters; a longer name is read whole and reported */
+    private Token identifier() throws java.io.IOException {
+        if (yylength() == 31) {
+            for (int c; isLower(c = peek(0)) || isDigit(c) || c == '_'; ) take();
+            if (yylength() > 31) error(ErrorCode.IDENTIFIER_TOO_LONG, yylength());
+        }
+        Token tok = new Token(TokenType.IDENTIFIER, yytext(), yyline+1, yycolumn+1);
+        idTable.record(tok);
+        return tok;
+    }
+
+    /* Completes a number the way ManualScanner.readRealLiteral() does: a point
+       with no digit after it, more than 6 fractional digits, or an exponent
+       marker with no digits make a REAL_LITERAL with an error */
+    private Token number(TokenType cat) throws java.io.IOException {
+        String text = yytext();
+        int    dot  = text.indexOf('.');
+        if (cat == TokenType.INT_LITERAL) {
+            if (peek(0) != '.') return new Token(TokenType.INT_LITERAL, text, yyline+1, yycolumn+1);
+            take();
+            error(ErrorCode.MISSING_FRACTION, 0);
+        } else if (text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+            return new Token(TokenType.REAL_LITERAL, text, yyline+1, yycolumn+1);
+        } else {
+            int digits = text.length() - dot - 1;
+            while (isDigit(peek(0))) { take(); digits++; }
+            if (digits > 6) error(ErrorCode.FRACTION_TOO_LONG, digits);
+        }
+        if (peek(0) == 'e' || peek(0) == 'E') {
+            take();
+            if (peek(0) == '+' || peek(0) == '-') take();
+            int digits = 0;
+            while (isDigit(peek(0))) { take(); digits++; }
+            if (digits == 0) error(ErrorCode.MISSING_EXPONENT, 0);
+        }
+        return new Token(TokenType.REAL_LITERAL, yytext(), yyline+1, yycolumn+1);
+    }
+
+    /* Reads a text or char literal from its opening quote, as ManualScanner
+       does: it ends at the closing quote, a newline or the end of input
+       (a char literal also after 3 characters), and a bad escape is
+       reported and dropped from the token's text */
+    private Token literal(TokenType cat) throws java.io.IOException {
+        char          quote = (cat == TokenType.TEXT_LITERAL) ? '"' : '\'';
+        ErrorCode     code  = (cat == TokenType.TEXT_LITERAL) ? ErrorCode.UNTERMINATED_STRING
+                                                              : ErrorCode.UNTERMINATED_CHAR;
+        int           max   = (cat == TokenType.TEXT_LITERAL) ? Integer.MAX_VALUE : 3;
+        StringBuilder buf   = null;         /* the text once a bad escape is dropped */
+        boolean       closed = false;
+        int           seen   = 0;
+
+        yypushback(yylength() - 1);
+        for (int c; seen < max && (c = peek(0)) >= 0; ) {
+            if (c == '\n') {
+                unterminated(code, buf);
+                break;
+            }
+            take();
+            if (buf != null) buf.append((char) c);
+            if (c == quote) {
+                closed = true;
+                break;
+            }
+            seen++;
+            if (Character.isHighSurrogate((char) c) && Character.isLowSurrogate((char) peek(0))) {
+                if (buf != null) buf.append((char) peek(0));
+                take();                             /* a surrogate pair is never split */
+                seen++;
+                continue;
+            }
+            if (c == '\\' && (c = peek(0)) >= 0) {
+                if (c == quote || c == '\\' || c == 'n' || c == 't' || c == 'r') {
+                    take();
+                    if (buf != null) buf.append((char) c);
+                } else {
+                    if (buf == null) buf = new StringBuilder(yytext());
+                    int line = lineAt(yylength()), col = colAt(yylength());
+                    take();
+                    if (Character.isHighSurrogate((char) c) && Character.isLowSurrogate((char) peek(0))) {
+                        c = Character.toCodePoint((char) c, (char) peek(0));
+                        take();
+                    }
+                    errorLog.report(ErrorCode.BAD_ESCAPE, line, col, c);
+                }
+            }
+        }
+        if (!closed) unterminated(code, buf);
+        return new Token(cat, (buf != null) ? buf.toString() : yytext(), yyline+1, yycolumn+1);
+    }
+
+    private void unterminated(ErrorCode code, StringBuilder buf) {
+        if (buf == null) error(code, 0);
+        else             errorLog.report(code, yyline+1, yycolumn+1, buf.toString(), 0, buf.length(), 0);
+    }
+
+    /* Catch-all: the start of a malformed literal, a lone & or |, or a
+       character outside the alphabet. Null if nothing is emitted. */
+    private Token unmatched() throws java.io.IOException {
+        switch (yycharat(0)) {
+            case '"':  return literal(TokenType.TEXT_LITERAL);
+            case '\'': return literal(TokenType.CHAR_LITERAL);
+            case '&': case '|':
+                return new Token(TokenType.INVALID, yytext(), yyline+1, yycolumn+1);
+            default:
+                for (int i = 0; i < yylength(); i++) {
+                    errorLog.badChar(yycharat(i), yyline+1, yycolumn+1+i);
+                    if (aborted()) yypushback(yylength() - i - 1);   /* stop where ManualScanner does */
+                }
+                return null;
+        }
+    }
+
+    /* "#*" with no "*#" after it (or the comment rule would have matched):
+       the comment runs to the end of input */
+    private void unterminatedComment() throws java.io.IOException {
+        while (peek(0) >= 0) take();
+        errorLog.unterminatedComment(yyline+1, yycolumn+1);
+    }
+
 
   /**
    * Creates a new scanner
@@ -682,24 +932,27 @@ public class Yylex {
       else {
         switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
           case 1: 
-            { System.err.println("Lexical error at Line " + (yyline+1) +
-                       ", Col " + (yycolumn+1) +
-                       ": unrecognised character '" + yytext() + "'");
+            { if (yycharat(0) == '#' && lookahead() == '*') {
+        unterminatedComment();
+        return null;                    /* it ran to the end of input */
+    }
+    Token tok = unmatched();
+    if (tok != null || aborted()) return tok;
             } 
             // fall through
           case 17: break;
           case 2: 
-            { return new Token(TokenType.INT_LITERAL, yytext(), yyline+1, yycolumn+1);
+            { return number(TokenType.INT_LITERAL);
             } 
             // fall through
           case 18: break;
           case 3: 
-            { return new Token(TokenType.IDENTIFIER, yytext(), yyline+1, yycolumn+1);
+            { return identifier();
             } 
             // fall through
           case 19: break;
           case 4: 
-            { return new Token(TokenType.ARITH_OP,      yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.ARITH_OP);
             } 
             // fall through
           case 20: break;
@@ -709,57 +962,59 @@ public class Yylex {
             // fall through
           case 21: break;
           case 6: 
-            { return new Token(TokenType.ASSIGN_OP,     yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.ASSIGN_OP);
             } 
             // fall through
           case 22: break;
           case 7: 
-            { return new Token(TokenType.LOGICAL_OP,    yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.LOGICAL_OP);
             } 
             // fall through
           case 23: break;
           case 8: 
-            { return new Token(TokenType.RELATIONAL_OP, yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.RELATIONAL_OP);
             } 
             // fall through
           case 24: break;
           case 9: 
-            { return new Token(TokenType.DELIMITER, yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.DELIMITER);
             } 
             // fall through
           case 25: break;
           case 10: 
-            { return new Token(TokenType.DEC_OP,        yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.DEC_OP);
             } 
             // fall through
           case 26: break;
           case 11: 
-            { return new Token(TokenType.INC_OP,        yytext(), yyline+1, yycolumn+1);
+            { return fixed(TokenType.INC_OP);
             } 
             // fall through
           case 27: break;
           case 12: 
-            { return new Token(TokenType.TEXT_LITERAL, yytext(), yyline+1, yycolumn+1);
+            { if (yytext().indexOf('\n') >= 0) return literal(TokenType.TEXT_LITERAL);   /* ends at the newline */
+    return new Token(TokenType.TEXT_LITERAL, yytext(), yyline+1, yycolumn+1);
             } 
             // fall through
           case 28: break;
           case 13: 
-            { return new Token(TokenType.REAL_LITERAL, yytext(), yyline+1, yycolumn+1);
+            { return number(TokenType.REAL_LITERAL);
             } 
             // fall through
           case 29: break;
           case 14: 
-            { return new Token(TokenType.CHAR_LITERAL, yytext(), yyline+1, yycolumn+1);
+            { if (yycharat(1) == '\n') return literal(TokenType.CHAR_LITERAL);           /* ends at the newline */
+    return new Token(TokenType.CHAR_LITERAL, yytext(), yyline+1, yycolumn+1);
             } 
             // fall through
           case 30: break;
           case 15: 
-            { return new Token(TokenType.KEYWORD, yytext(), yyline+1, yycolumn+1);
+            { if (wholeWord()) return fixed(TokenType.KEYWORD); if (aborted()) return null;
             } 
             // fall through
           case 31: break;
           case 16: 
-            { return new Token(TokenType.BOOL_LITERAL, yytext(), yyline+1, yycolumn+1);
+            { if (wholeWord()) return fixed(TokenType.BOOL_LITERAL); if (aborted()) return null;
             } 
             // fall through
           case 32: break;